@@ -0,0 +1,182 @@
+/* PresetCrcModelsGenerator.java
+ *
+ * Copyright (C) 2015-19, Tomas Pecina <tomas@pecina.cz>
+ *
+ * This file is part of cz.pecina.bin, a suite of binary-file
+ * processing applications.
+ *
+ * This application is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The source code is available from <https://github.com/tompecina/bitwriter>.
+ */
+
+package cz.pecina.bin.bitwriter;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.validation.SchemaFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Build-time generator of the class <code>PresetCrcModelsCatalog</code>,
+ * which creates the default CRC models, read from <code>crc.xml</code>,
+ * directly, so that no XML parsing is needed for the default models
+ * at run time.
+ *
+ * <p>The generator is not part of the application; it is compiled and
+ * run in the <code>generate-sources</code> phase, see
+ * <code>pom.xml</code>.  The arguments are the pathname of the models
+ * file, the pathname of the schema the file is validated against and
+ * the root directory of the generated sources.
+ *
+ * @author Tomáš Pecina
+ * @version 1.0.5
+ * @see PresetCrcModels
+ */
+public final class PresetCrcModelsGenerator {
+
+  // constants
+  private static final String PACKAGE = "cz.pecina.bin.bitwriter";
+  private static final String CLASS = "PresetCrcModelsCatalog";
+
+  // converts a string to a Java string literal
+  private static String literal(final String s) {
+    final StringBuilder r = new StringBuilder("\"");
+    for (char c : s.toCharArray()) {
+      if ((c == '"') || (c == '\\')) {
+        r.append('\\').append(c);
+      } else if ((c < ' ') || (c > '~')) {
+        r.append(String.format("\\u%04x", (int) c));
+      } else {
+        r.append(c);
+      }
+    }
+    return r.append('"').toString();
+  }
+
+  // gets the trimmed text of the first child element with the given tag, or null if there is none
+  private static String text(final Element element, final String tag) {
+    final Element child = (Element) element.getElementsByTagName(tag).item(0);
+    return (child == null) ? null : child.getTextContent().trim();
+  }
+
+  // converts an XML Schema boolean to a Java literal
+  private static String bool(final String s) {
+    return String.valueOf("true".equals(s) || "1".equals(s));
+  }
+
+  // parses and validates the models file
+  private static Document parse(final File file, final File schema) throws Exception {
+    final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    factory.setCoalescing(true);
+    factory.setIgnoringComments(true);
+    final Document doc;
+    try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+      doc = factory.newDocumentBuilder().parse(inputStream);
+    }
+    SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(schema).newValidator().validate(
+        new DOMSource(doc));
+    return doc;
+  }
+
+  // writes the source of the catalog
+  private static void write(final Document doc, final PrintWriter out) {
+    final NodeList modelElements = doc.getDocumentElement().getElementsByTagName("model");
+    out.println("/* " + CLASS + ".java");
+    out.println(" *");
+    out.println(" * Generated from crc.xml by " + PresetCrcModelsGenerator.class.getSimpleName() + ", do not edit.");
+    out.println(" */");
+    out.println();
+    out.println("package " + PACKAGE + ";");
+    out.println();
+    out.println("import java.math.BigInteger;");
+    out.println();
+    out.println("final class " + CLASS + " {");
+    for (int i = 0; i < modelElements.getLength(); i++) {
+      final Element modelElement = (Element) modelElements.item(i);
+      out.println();
+      out.println("  private static CrcModel model" + i + "() throws ProcessorException, PolynomialException {");
+      out.println("    final CrcModel model = new CrcModel();");
+      out.println("    model.setId(" + literal(modelElement.getAttribute("id")) + ");");
+      final NodeList nameElements = modelElement.getElementsByTagName("name");
+      for (int j = 0; j < nameElements.getLength(); j++) {
+        out.println("    model.addName(" + literal(nameElements.item(j).getTextContent().trim()) + ");");
+      }
+      final String description = text(modelElement, "description");
+      if (description != null) {
+        out.println("    model.setDescription(" + literal(description) + ");");
+      }
+      final Element polynomialElement = (Element) modelElement.getElementsByTagName("polynomial").item(0);
+      out.println("    model.setPolynomial(new Polynomial(new BigInteger(" + literal(text(modelElement, "polynomial"))
+          + ", 16), Polynomial.Notation." + polynomialElement.getAttribute("notation").toUpperCase(Locale.ROOT) + ", "
+          + Integer.parseInt(text(modelElement, "width")) + "));");
+      out.println("    model.setReflectIn(" + bool(text(modelElement, "reflect-in")) + ");");
+      out.println("    model.setXorIn(new BigInteger(" + literal(text(modelElement, "xor-in")) + ", 16));");
+      out.println("    model.setReflectOut(" + bool(text(modelElement, "reflect-out")) + ");");
+      out.println("    model.setXorOut(new BigInteger(" + literal(text(modelElement, "xor-out")) + ", 16));");
+      final String check = text(modelElement, "check");
+      if (check != null) {
+        out.println("    model.setCheck(new BigInteger(" + literal(check) + ", 16));");
+      }
+      out.println("    return model;");
+      out.println("  }");
+    }
+    out.println();
+    out.println("  static void addTo(final PresetCrcModels models) throws ProcessorException, PolynomialException {");
+    for (int i = 0; i < modelElements.getLength(); i++) {
+      out.println("    models.add(model" + i + "());");
+    }
+    out.println("  }");
+    out.println();
+    out.println("  private " + CLASS + "() {");
+    out.println("  }");
+    out.println("}");
+  }
+
+  /**
+   * Generates the catalog.
+   *
+   * @param     args      the pathname of the models file, the pathname
+   *                      of the schema and the root directory of
+   *                      the generated sources
+   * @exception Exception on error in the models file or on I/O error
+   */
+  public static void main(final String[] args) throws Exception {
+    if (args.length != 3) {
+      throw new IllegalArgumentException("Usage: " + PresetCrcModelsGenerator.class.getSimpleName()
+          + " CRC-FILE SCHEMA-FILE OUTPUT-DIRECTORY");
+    }
+    final Document doc = parse(new File(args[0]), new File(args[1]));
+    final Path directory = new File(args[2]).toPath().resolve(PACKAGE.replace('.', File.separatorChar));
+    Files.createDirectories(directory);
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(directory.resolve(CLASS + ".java"),
+        StandardCharsets.UTF_8))) {
+      write(doc, out);
+    }
+  }
+
+  private PresetCrcModelsGenerator() {
+  }
+}
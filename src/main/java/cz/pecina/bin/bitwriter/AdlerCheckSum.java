@@ -0,0 +1,132 @@
+/* AdlerCheckSum.java
+ *
+ * Copyright (C) 2015-19, Tomas Pecina <tomas@pecina.cz>
+ *
+ * This file is part of cz.pecina.bin, a suite of binary-file
+ * processing applications.
+ *
+ * This application is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The source code is available from <https://github.com/tompecina/bitwriter>.
+ */
+
+package cz.pecina.bin.bitwriter;
+
+import java.math.BigInteger;
+import java.util.logging.Logger;
+import java.util.zip.Adler32;
+
+/**
+ * Adler-32 checksum calculator.  Each value is taken as a byte.
+ *
+ * <p>The calculation is delegated to <code>java.util.zip.Adler32</code>,
+ * which always starts from the standard initial value; when
+ * the register is read, the result is combined with the initial
+ * register, so any initial value or register setting is supported.
+ *
+ * @author Tomáš Pecina
+ * @version 1.0.5
+ * @see CheckSumModel.Algorithm#ADLER
+ */
+public class AdlerCheckSum extends CheckSum {
+
+  // static logger
+  private static final Logger log = Logger.getLogger(AdlerCheckSum.class.getName());
+
+  /**
+   * The modulus of the Adler-32 sums.
+   */
+  public static final int BASE = 65521;
+
+  // fields
+  protected final Adler32 adler = new Adler32();
+  protected long initial;
+  protected long length;
+
+  // for description see Calculator
+  @Override
+  public void setRegister(final BigInteger value) {
+    log.finer("Setting register to: " + Util.bigIntegerToString(value));
+    initial = value.longValue() & 0xffffffffL;
+    adler.reset();
+    length = 0;
+  }
+
+  // for description see Calculator
+  @Override
+  public BigInteger getRegister() {
+    final long a1 = (initial & 0xffff) % BASE;
+    final long b1 = (initial >>> 16) % BASE;
+    final long value = adler.getValue();
+    final long rem = length % BASE;
+    final long a = (a1 + (value & 0xffff) + BASE - 1) % BASE;
+    final long b = (b1 + (value >>> 16) + (rem * ((a1 + BASE - 1) % BASE))) % BASE;
+    final BigInteger r = BigInteger.valueOf((b << 16) | a).xor(model.getXorOut());
+    log.finer("Getting register: " + Util.bigIntegerToString(r));
+    return r;
+  }
+
+  // for description see Calculator
+  @Override
+  public void updateBit(final int b) {
+    update(b & 1);
+  }
+
+  // for description see Calculator
+  @Override
+  public void updateBit(final boolean b) {
+    update(b ? 1 : 0);
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final byte[] d, final int offset, final int length) {
+    log.finest("Updating AdlerCheckSum with a block of length: " + length);
+    adler.update(d, offset, length);
+    this.length += length;
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final int b) {
+    adler.update(b);
+    length++;
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final BigInteger b) {
+    update(b.and(Constants.FF).intValue());
+  }
+
+  // for description see Object
+  @Override
+  public String toString() {
+    return "AdlerCheckSum";
+  }
+
+  /**
+   * Main constructor.
+   *
+   * @param model model to be used for the calculator
+   */
+  public AdlerCheckSum(final CheckSumModel model) {
+    super(model);
+    log.fine("Creation of new AdlerCheckSum started");
+
+    setRegister(model.getXorIn());
+
+    log.fine("Creation of new AdlerCheckSum completed");
+  }
+}
@@ -25,11 +25,16 @@ package cz.pecina.bin.bitwriter;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Bit stream.
  *
+ * <p>If the output aggregate width does not exceed 64 bits, bits
+ * are collected in a <code>long</code> register, otherwise
+ * <code>BigInteger</code> arithmetic is used.
+ *
  * @author Tomáš Pecina
  * @version 1.0.5
  */
@@ -45,6 +50,11 @@ public class BitStream implements Stream {
   protected int counter;
   protected int offset;
   protected int step;
+  protected boolean narrow;
+  protected long longBuffer;
+  protected int width;
+  protected final long[] block = new long[Constants.BLOCK_SIZE];
+  protected final long[] groups = new long[Constants.BLOCK_SIZE];
   protected static final BigInteger MASK = BigInteger.ONE;
 
   /**
@@ -68,6 +78,27 @@ public class BitStream implements Stream {
     return reflectOut;
   }
 
+  /**
+   * Checks whether the chain of streams starting with this stream
+   * passes bytes on unchanged and without any side effects.
+   *
+   * @return <code>true</code> if the chain is an identity transform
+   */
+  public boolean isTransparent() {
+    return (width == 8) && (counter == width) && !reflectOut && !processor.hasListeners(Variable.Type.BITSTREAM)
+        && outAggregateStream.isTransparent();
+  }
+
+  /**
+   * Checks whether the chain of streams starting with this stream
+   * holds no buffered data.
+   *
+   * @return <code>true</code> if the bit buffer is empty
+   */
+  public boolean isEmpty() {
+    return counter == width;
+  }
+
   // for description see Stream
   @Override
   public void setDefaults() {
@@ -80,28 +111,40 @@ public class BitStream implements Stream {
   @Override
   public void reset() {
     log.fine("Resetting BitStream");
+    narrow = outAggregateStream.isNarrow();
+    width = outAggregateStream.getWidthOutAggregate();
+    step = reflectOut ? 1 : -1;
+    restart();
+  }
+
+  // empties the buffer
+  private void restart() {
     buffer = BigInteger.ZERO;
-    counter = outAggregateStream.getWidthOutAggregate();
-    if (reflectOut) {
-      offset = 0;
-      step = 1;
-    } else {
-      offset = counter - 1;
-      step = -1;
-    }
+    longBuffer = 0L;
+    counter = width;
+    offset = reflectOut ? 0 : (width - 1);
   }
 
   // for description see Stream
   @Override
   public void write(final BigInteger arg) throws IOException {
     log.finest("Writing BigInteger to BitStream: " + Util.bigIntegerToString(arg));
+    if (narrow) {
+      write(arg.testBit(0) ? 1L : 0L);
+      return;
+    }
     final BigInteger value = arg.and(MASK);
     try {
       processor.trigger(Variable.Type.BITSTREAM, value);
     } catch (final ProcessorException exception) {
       throw new IOException(exception.getMessage());
     }
-    if (value.testBit(0)) {
+    appendBit(value.testBit(0));
+  }
+
+  // appends one bit to the BigInteger buffer
+  private void appendBit(final boolean bit) throws IOException {
+    if (bit) {
       buffer = buffer.setBit(offset);
     } else {
       buffer = buffer.clearBit(offset);
@@ -109,7 +152,189 @@ public class BitStream implements Stream {
     offset += step;
     if ((--counter) == 0) {
       outAggregateStream.write(buffer);
-      reset();
+      restart();
+    }
+  }
+
+  // for description see Stream
+  @Override
+  public void write(final long arg) throws IOException {
+    if (!narrow) {
+      write(Util.unsignedToBigInteger(arg));
+      return;
+    }
+    if (log.isLoggable(Level.FINEST)) {
+      log.finest("Writing long to BitStream: " + Long.toUnsignedString(arg));
+    }
+    final long value = arg & 1L;
+    try {
+      processor.trigger(Variable.Type.BITSTREAM, value);
+    } catch (final ProcessorException exception) {
+      throw new IOException(exception.getMessage());
+    }
+    longBuffer |= value << offset;
+    offset += step;
+    if ((--counter) == 0) {
+      outAggregateStream.write(longBuffer);
+      restart();
+    }
+  }
+
+  /**
+   * Writes a group of bits to the stream at once, without activating
+   * the trigger.  It may only be used if no variable is bound
+   * to the bit stream.
+   *
+   * @param     bits        the bits to be written, right-aligned;
+   *                        the most significant of them is written
+   *                        first
+   * @param     count       number of bits to be written, from 1 to 64
+   * @exception IOException on I/O error
+   */
+  public void writeBits(final long bits, final int count) throws IOException {
+    if (log.isLoggable(Level.FINEST)) {
+      log.finest("Writing " + count + " bits to BitStream: " + Long.toUnsignedString(bits));
+    }
+    if (!narrow) {
+      for (int i = count - 1; i >= 0; i--) {
+        appendBit(((bits >>> i) & 1L) != 0);
+      }
+    } else {
+      int remaining = count;
+      while (remaining > 0) {
+        remaining -= place(bits, remaining);
+        if (counter == 0) {
+          outAggregateStream.write(longBuffer);
+          restart();
+        }
+      }
+    }
+    keepBit(bits);
+  }
+
+  /**
+   * Writes a block of groups of bits to the stream at once, without
+   * activating the trigger.  It may only be used if no variable is
+   * bound to the bit stream.
+   *
+   * @param     data        array containing the groups of bits,
+   *                        right-aligned; the most significant bit
+   *                        of each group is written first
+   * @param     offset      offset of the first group in the array
+   * @param     length      number of groups to be written
+   * @param     count       number of bits in each group, from 1 to 64
+   * @exception IOException on I/O error
+   */
+  public void writeBits(final long[] data, final int offset, final int length, final int count) throws IOException {
+    log.finest("Writing block of " + length + " groups of " + count + " bits to BitStream");
+    if (!narrow) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        writeBits(data[i], count);
+      }
+    } else if ((count == width) && (counter == width) && !reflectOut) {
+      outAggregateStream.write(data, offset, length);
+    } else {
+      int n = 0;
+      for (int i = offset, end = offset + length; i < end; i++) {
+        final long bits = data[i];
+        int remaining = count;
+        while (remaining > 0) {
+          remaining -= place(bits, remaining);
+          if (counter == 0) {
+            block[n++] = longBuffer;
+            restart();
+            if (n == block.length) {
+              outAggregateStream.write(block, 0, n);
+              n = 0;
+            }
+          }
+        }
+      }
+      if (n > 0) {
+        outAggregateStream.write(block, 0, n);
+      }
+      if (length > 0) {
+        keepBit(data[offset + length - 1]);
+      }
+    }
+  }
+
+  /**
+   * Writes a block of bytes to the stream at once, each as a group
+   * of eight bits, the most significant first, without activating
+   * the trigger.  It may only be used if no variable is bound
+   * to the bit stream.
+   *
+   * @param     data        array containing the bytes
+   * @param     offset      offset of the first byte in the array
+   * @param     length      number of bytes to be written
+   * @exception IOException on I/O error
+   */
+  public void writeBits(final byte[] data, final int offset, final int length) throws IOException {
+    log.finest("Writing block of " + length + " bytes to BitStream");
+    if ((width == 8) && (counter == width) && !reflectOut) {
+      outAggregateStream.write(data, offset, length);
+    } else {
+      for (int i = offset, end = offset + length; i < end; i += groups.length) {
+        final int n = Math.min(groups.length, end - i);
+        for (int j = 0; j < n; j++) {
+          groups[j] = data[i + j] & 0xffL;
+        }
+        writeBits(groups, 0, n, 8);
+      }
+    }
+  }
+
+  // if the last bit of a group stays in the buffer, makes it the value of 'val',
+  // as the trigger would have done
+  private void keepBit(final long bits) {
+    if (counter != width) {
+      processor.getScriptProcessor().putUnsignedValue(bits & 1L);
+    }
+  }
+
+  // places up to counter bits to the long buffer, returns the number of bits placed
+  private int place(final long bits, final int remaining) {
+    final int n = Math.min(remaining, counter);
+    final long chunk = (bits >>> (remaining - n)) & Util.makeLongMask(n);
+    if (reflectOut) {
+      longBuffer |= (Long.reverse(chunk) >>> (Long.SIZE - n)) << offset;
+      offset += n;
+    } else {
+      longBuffer |= chunk << (offset - n + 1);
+      offset -= n;
+    }
+    counter -= n;
+    return n;
+  }
+
+  // for description see Stream
+  @Override
+  public void write(final byte[] data, final int offset, final int length) throws IOException {
+    log.finest("Writing block of " + length + " bytes to BitStream");
+    if (processor.hasListeners(Variable.Type.BITSTREAM)) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        write(data[i] & 1L);
+      }
+    } else {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        writeBits(data[i] & 1L, 1);
+      }
+    }
+  }
+
+  // for description see Stream
+  @Override
+  public void write(final long[] data, final int offset, final int length) throws IOException {
+    log.finest("Writing block of " + length + " longs to BitStream");
+    if (processor.hasListeners(Variable.Type.BITSTREAM)) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        write(data[i] & 1L);
+      }
+    } else {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        writeBits(data[i] & 1L, 1);
+      }
     }
   }
 
@@ -117,11 +342,18 @@ public class BitStream implements Stream {
   @Override
   public void flush() throws IOException {
     log.finer("Flushing BitStream");
-    if (counter != outAggregateStream.getWidthOutAggregate()) {
-      if (!reflectOut) {
-        buffer = buffer.shiftRight(counter);
+    if (counter != width) {
+      if (narrow) {
+        if (!reflectOut) {
+          longBuffer >>>= counter;
+        }
+        outAggregateStream.write(longBuffer);
+      } else {
+        if (!reflectOut) {
+          buffer = buffer.shiftRight(counter);
+        }
+        outAggregateStream.write(buffer);
       }
-      outAggregateStream.write(buffer);
       reset();
     }
     outAggregateStream.flush();
@@ -98,6 +98,28 @@ public class BitWriter {
     return Constants.EXIT_CODE_SUCCESS;
   }
 
+  // finds CRC models matching the samples and lists them
+  private static void findCrc(final Parameters parameters, final PresetCrcModels presetCrcModels,
+      final PrintStream stderr) throws ProcessorException, IOException {
+    final CrcFinder finder = new CrcFinder();
+    try (InputStream inputStream = new FileInputStream(parameters.getFindCrcFileName())) {
+      finder.readSamples(inputStream);
+    }
+    for (CrcModel model : finder.findPresets(presetCrcModels)) {
+      stderr.println("Preset model: " + model.getId());
+    }
+    final int width = (parameters.getFindCrcWidth() > 0) ? parameters.getFindCrcWidth() : finder.getDefaultWidth();
+    for (CrcModel model : finder.search(width)) {
+      stderr.printf("Width: %d Poly: %s RefIn: %s XorIn: %s RefOut: %s XorOut: %s%n",
+          model.getPolynomial().getWidth(), Util.bigIntegerToString(model.getPolynomial().getPolynomial()),
+          Util.tf(model.getReflectIn()), Util.bigIntegerToString(model.getXorIn()), Util.tf(model.getReflectOut()),
+          Util.bigIntegerToString(model.getXorOut()));
+    }
+    if (!finder.isInitialDetermined()) {
+      stderr.println("Note: XorIn cannot be determined from samples of a single length, zero assumed");
+    }
+  }
+
   // for description see Object
   @Override
   public String toString() {
@@ -133,15 +155,23 @@ public class BitWriter {
       return;
     }
 
-    final InputStream crcModelsInputStream = (parameters.getCrcFileNameFlag()
-        ? new FileInputStream(parameters.getCrcFileName()) : BitWriter.class.getResourceAsStream("crc.xml"));
-    final PresetCrcModels presetCrcModels = new PresetCrcModels(crcModelsInputStream);
+    final PresetCrcModels presetCrcModels = (parameters.getCrcFileNameFlag()
+        ? new PresetCrcModels(new FileInputStream(parameters.getCrcFileName())) : new PresetCrcModels());
+
+    if (parameters.getVerifyCrcFlag()) {
+      presetCrcModels.verify();
+    }
 
     if (parameters.getListCrcFlag()) {
       presetCrcModels.list(stderr);
       return;
     }
 
+    if (parameters.getFindCrcFileName() != null) {
+      findCrc(parameters, presetCrcModels, stderr);
+      return;
+    }
+
     OutputStream outputStream;
     if (parameters.getOutputFileNameFlag()) {
       outputStream = new FileOutputStream(parameters.getOutputFileName());
@@ -0,0 +1,114 @@
+/* BsdCheckSum.java
+ *
+ * Copyright (C) 2015-19, Tomas Pecina <tomas@pecina.cz>
+ *
+ * This file is part of cz.pecina.bin, a suite of binary-file
+ * processing applications.
+ *
+ * This application is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The source code is available from <https://github.com/tompecina/bitwriter>.
+ */
+
+package cz.pecina.bin.bitwriter;
+
+import java.math.BigInteger;
+import java.util.logging.Logger;
+
+/**
+ * BSD checksum calculator.  Each value is taken as a byte; before it
+ * is added, the 16-bit register is rotated right by one bit.
+ *
+ * @author Tomáš Pecina
+ * @version 1.0.5
+ * @see CheckSumModel.Algorithm#BSD
+ */
+public class BsdCheckSum extends CheckSum {
+
+  // static logger
+  private static final Logger log = Logger.getLogger(BsdCheckSum.class.getName());
+
+  // fields
+  protected int sum;
+
+  // for description see Calculator
+  @Override
+  public void setRegister(final BigInteger value) {
+    log.finer("Setting register to: " + Util.bigIntegerToString(value));
+    sum = value.intValue() & 0xffff;
+  }
+
+  // for description see Calculator
+  @Override
+  public BigInteger getRegister() {
+    final BigInteger r = BigInteger.valueOf(sum).xor(model.getXorOut());
+    log.finer("Getting register: " + Util.bigIntegerToString(r));
+    return r;
+  }
+
+  // for description see Calculator
+  @Override
+  public void updateBit(final int b) {
+    update(b & 1);
+  }
+
+  // for description see Calculator
+  @Override
+  public void updateBit(final boolean b) {
+    update(b ? 1 : 0);
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final byte[] d, final int offset, final int length) {
+    log.finest("Updating BsdCheckSum with a block of length: " + length);
+    int s = sum;
+    for (int i = offset, end = offset + length; i < end; i++) {
+      s = (((s >>> 1) | (s << 15)) + (d[i] & 0xff)) & 0xffff;
+    }
+    sum = s;
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final int b) {
+    sum = (((sum >>> 1) | (sum << 15)) + (b & 0xff)) & 0xffff;
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final BigInteger b) {
+    update(b.and(Constants.FF).intValue());
+  }
+
+  // for description see Object
+  @Override
+  public String toString() {
+    return "BsdCheckSum";
+  }
+
+  /**
+   * Main constructor.
+   *
+   * @param model model to be used for the calculator
+   */
+  public BsdCheckSum(final CheckSumModel model) {
+    super(model);
+    log.fine("Creation of new BsdCheckSum started");
+
+    setRegister(model.getXorIn());
+
+    log.fine("Creation of new BsdCheckSum completed");
+  }
+}
@@ -24,6 +24,7 @@
 package cz.pecina.bin.bitwriter;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.logging.Logger;
 
 /**
@@ -82,6 +83,46 @@ public abstract class Calculator {
    */
   public abstract void update(byte[] d);
 
+  /**
+   * Updates the register from a block of bytes.  Each byte is treated
+   * as an unsigned value, i.e., the result is the same as if
+   * {@link #update(BigInteger)} were called for every byte of
+   * the block.  Calculators able to process blocks more efficiently
+   * should override this method.
+   *
+   * @param d      the array of input values
+   * @param offset offset of the first value in the array
+   * @param length number of values
+   */
+  public void update(final byte[] d, final int offset, final int length) {
+    log.finest("Updating calculator with a block of length: " + length);
+    for (int i = offset, end = offset + length; i < end; i++) {
+      update(BigInteger.valueOf(d[i] & 0xff));
+    }
+  }
+
+  /**
+   * Updates the register from the remaining bytes of a buffer, each
+   * treated as an unsigned value.  On return, the position of
+   * the buffer is equal to its limit.
+   *
+   * @param d the buffer containing the input values
+   */
+  public void update(final ByteBuffer d) {
+    log.finest("Updating calculator with a buffer of length: " + d.remaining());
+    if (d.hasArray()) {
+      update(d.array(), d.arrayOffset() + d.position(), d.remaining());
+      d.position(d.limit());
+    } else {
+      final byte[] block = new byte[Math.min(d.remaining(), Constants.BLOCK_SIZE)];
+      while (d.hasRemaining()) {
+        final int length = Math.min(d.remaining(), block.length);
+        d.get(block, 0, length);
+        update(block, 0, length);
+      }
+    }
+  }
+
   /**
    * Updates the register.
    *
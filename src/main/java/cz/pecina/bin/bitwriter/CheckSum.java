@@ -27,7 +27,10 @@ import java.math.BigInteger;
 import java.util.logging.Logger;
 
 /**
- * Checksum calculator.
+ * Checksum calculator.  The values are either added modulo
+ * 2<sup><i>width</i></sup>, or, in the ones'-complement model, with
+ * end-around carry.  The other algorithms are implemented by
+ * subclasses, see {@link #create}.
  *
  * @author Tomáš Pecina
  * @version 1.0.5
@@ -71,9 +74,7 @@ public class CheckSum extends Calculator {
   @Override
   public void update(final byte[] d) {
     log.finest("Updating CheckSum with an array of length: " + d.length);
-    for (byte b : d) {
-      update(BigInteger.valueOf(b));
-    }
+    update(d, 0, d.length);
   }
 
   // for description see Calculator
@@ -87,7 +88,14 @@ public class CheckSum extends Calculator {
   @Override
   public void update(final BigInteger b) {
     log.finest("Updating CheckSum with: " + Util.bigIntegerToString(b));
-    register = register.add(b.and(mask)).and(mask);
+    register = register.add(b.and(mask));
+    if (register.compareTo(mask) > 0) {
+      if (model.getAlgorithm() == CheckSumModel.Algorithm.ONES_COMPLEMENT) {
+        register = register.and(mask).add(BigInteger.ONE);
+      } else {
+        register = register.and(mask);
+      }
+    }
   }
 
   // for description see Object
@@ -96,10 +104,37 @@ public class CheckSum extends Calculator {
     return "CheckSum";
   }
 
+  /**
+   * Creates the most efficient checksum calculator available for
+   * the model.
+   *
+   * @param  model model to be used for the calculator
+   * @return       new checksum calculator
+   */
+  public static CheckSum create(final CheckSumModel model) {
+    switch (model.getAlgorithm()) {
+      case FLETCHER:
+        return new FletcherCheckSum(model);
+      case ADLER:
+        return new AdlerCheckSum(model);
+      case BSD:
+        return new BsdCheckSum(model);
+      case SYSV:
+        return new SysvCheckSum(model);
+      default:
+        if (model.getWidth() <= ((model.getAlgorithm() == CheckSumModel.Algorithm.MODULAR)
+            ? LongCheckSum.MAX_MODULAR_WIDTH : LongCheckSum.MAX_ONES_COMPLEMENT_WIDTH)) {
+          return new LongCheckSum(model);
+        }
+        return new CheckSum(model);
+    }
+  }
+
   /**
    * Main constructor.
    *
-   * @param model model to be used for the calculator
+   * @param model model to be used for the calculator, the algorithm
+   *              must be modular or ones' complement
    */
   public CheckSum(final CheckSumModel model) {
     log.fine("Creation of new CheckSum started");
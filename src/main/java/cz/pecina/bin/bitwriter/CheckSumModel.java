@@ -37,11 +37,75 @@ public class CheckSumModel {
   // static logger
   private static final Logger log = Logger.getLogger(CheckSumModel.class.getName());
 
+  /**
+   * Checksum algorithms.
+   */
+  public enum Algorithm {
+
+    /**
+     * Sum modulo 2<sup><i>width</i></sup>.
+     */
+    MODULAR,
+
+    /**
+     * Ones'-complement sum, i.e., with end-around carry, as in
+     * the Internet checksum.
+     */
+    ONES_COMPLEMENT,
+
+    /**
+     * Fletcher's checksum, the two halves of the register holding
+     * the sum of the values and the sum of the sums, both modulo
+     * 2<sup><i>width</i>/2</sup>-1.
+     */
+    FLETCHER,
+
+    /**
+     * Adler-32 checksum, as used by zlib.
+     */
+    ADLER,
+
+    /**
+     * BSD checksum, as calculated by <code>sum -r</code>.
+     */
+    BSD,
+
+    /**
+     * System V checksum, as calculated by <code>sum -s</code>.
+     */
+    SYSV
+  }
+
   // fields
+  protected Algorithm algorithm = Algorithm.MODULAR;
   protected int width;
   protected BigInteger xorIn;
   protected BigInteger xorOut;
 
+  /**
+   * Sets the algorithm of the checksum.
+   *
+   * @param     algorithm          the algorithm of the checksum
+   * @exception ProcessorException if <code>null</code> algorithm supplied
+   */
+  public void setAlgorithm(final Algorithm algorithm) throws ProcessorException {
+    log.finer("Setting algorithm to: " + algorithm);
+    if (algorithm == null) {
+      throw new ProcessorException("Illegal checksum parameters, algorithm == null");
+    }
+    this.algorithm = algorithm;
+  }
+
+  /**
+   * Gets the algorithm of the checksum.
+   *
+   * @return the algorithm of the checksum
+   */
+  public Algorithm getAlgorithm() {
+    log.finer("Getting algorithm: " + algorithm);
+    return algorithm;
+  }
+
   /**
    * Sets the bit-width of the checksum.
    *
@@ -114,6 +178,47 @@ public class CheckSumModel {
     return xorOut;
   }
 
+  /**
+   * Gets the default bit-width of checksums using the algorithm.
+   *
+   * @param  algorithm the algorithm of the checksum
+   * @return           the default bit-width
+   */
+  public static int getDefaultWidth(final Algorithm algorithm) {
+    switch (algorithm) {
+      case FLETCHER:
+      case BSD:
+      case SYSV:
+        return 16;
+      case ADLER:
+        return 32;
+      default:
+        return 8;
+    }
+  }
+
+  /**
+   * Checks if the bit-width can be used with the algorithm.
+   * Fletcher's checksums must have an even width not exceeding 64
+   * bits, the Adler-32, BSD and System V checksums have fixed widths.
+   *
+   * @param  algorithm the algorithm of the checksum
+   * @param  width     the bit-width of the checksum
+   * @return           <code>true</code> if the width is legal
+   */
+  public static boolean isLegalWidth(final Algorithm algorithm, final int width) {
+    switch (algorithm) {
+      case FLETCHER:
+        return (width >= 2) && (width <= Long.SIZE) && ((width % 2) == 0);
+      case ADLER:
+      case BSD:
+      case SYSV:
+        return width == getDefaultWidth(algorithm);
+      default:
+        return width >= 1;
+    }
+  }
+
   // for description see Object
   @Override
   public String toString() {
@@ -123,21 +228,39 @@ public class CheckSumModel {
   /**
    * Main constructor.
    *
+   * @param     algorithm          algorithm of the checksum
    * @param     width              bit-width of the checksum
    * @param     xorIn              initial mask
    * @param     xorOut             final mask
    * @exception ProcessorException on error in parameters
    */
-  public CheckSumModel(final int width, final BigInteger xorIn, final BigInteger xorOut) throws ProcessorException {
+  public CheckSumModel(final Algorithm algorithm, final int width, final BigInteger xorIn, final BigInteger xorOut)
+      throws ProcessorException {
     log.fine("Creation of new CheckSumModel started");
 
+    setAlgorithm(algorithm);
     setWidth(width);
+    if (!isLegalWidth(algorithm, width)) {
+      throw new ProcessorException("Illegal checksum width for the algorithm");
+    }
     setXorIn(xorIn);
     setXorOut(xorOut);
 
     log.fine("Creation of new CheckSumModel completed");
   }
 
+  /**
+   * Constructor for modular checksums.
+   *
+   * @param     width              bit-width of the checksum
+   * @param     xorIn              initial mask
+   * @param     xorOut             final mask
+   * @exception ProcessorException on error in parameters
+   */
+  public CheckSumModel(final int width, final BigInteger xorIn, final BigInteger xorOut) throws ProcessorException {
+    this(Algorithm.MODULAR, width, xorIn, xorOut);
+  }
+
   /**
    * Simplified constructor, with zero masks.
    *
@@ -160,6 +160,52 @@ public class Connector {
     processor.getInStream().flush();
   }
 
+  // converts a length to long
+  private long sanitizeLength(final Object value) throws ProcessorException {
+    final BigInteger length = sanitize(value);
+    if ((length.signum() < 0) || (length.bitLength() >= Long.SIZE)) {
+      throw new ProcessorException("Illegal length: " + length);
+    }
+    return length.longValue();
+  }
+
+  /**
+   * Combines the CRC values of two blocks of bytes.
+   *
+   * @param     model              name of the preset CRC model
+   * @param     crcA               the CRC value of the first block
+   * @param     crcB               the CRC value of the second block
+   * @param     lengthB            length of the second block, in bytes
+   * @return                       the CRC value of the two blocks concatenated
+   * @exception ProcessorException if invalid model or value supplied
+   */
+  public BigInteger combineCrc(final String model, final Object crcA, final Object crcB, final Object lengthB)
+      throws ProcessorException {
+    final CrcModel crcModel = processor.getPresetCrcModels().getChecked(model);
+    if (crcModel == null) {
+      throw new ProcessorException("Undefined CRC model '" + model + "'");
+    }
+    return Crc.create(crcModel).combine(sanitize(crcA), sanitize(crcB), sanitizeLength(lengthB));
+  }
+
+  /**
+   * Updates a CRC variable as if a block of bytes with the given CRC
+   * value were written to its stream.
+   *
+   * @param     name               name of the variable
+   * @param     crcB               the CRC value of the block
+   * @param     lengthB            length of the block, in bytes
+   * @exception ProcessorException if invalid variable or value supplied
+   */
+  public void appendCrc(final String name, final Object crcB, final Object lengthB) throws ProcessorException {
+    final Variable variable = processor.getVariables().get(name);
+    if ((variable == null) || !(variable.getCalculator() instanceof Crc)) {
+      throw new ProcessorException("Variable '" + name + "' is not a CRC variable");
+    }
+    ((Crc) variable.getCalculator()).append(sanitize(crcB), sanitizeLength(lengthB));
+    variable.invalidate();
+  }
+
   // for description see Object
   @Override
   public String toString() {
@@ -65,6 +65,11 @@ public final class Constants {
    */
   public static final int EXIT_CODE_IO_ERROR = 4;
 
+  /**
+   * Maximum number of values passed on in one block by bulk write's.
+   */
+  public static final int BLOCK_SIZE = 0x1000;
+
   /**
    * Version of the input XML file.
    */
@@ -23,9 +23,15 @@
 
 package cz.pecina.bin.bitwriter;
 
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -34,6 +40,10 @@ import java.util.logging.Logger;
  * <p>This stream can be discarded and/or switched to hexadecimal mode,
  * useful for debugging.
  *
+ * <p>Data is collected in a block buffer, which is drained to the
+ * underlying output stream on flush, at the end of each stream,
+ * on close and when the buffer is full.
+ *
  * @author Tomáš Pecina
  * @version 1.0.5
  */
@@ -43,19 +53,22 @@ public class ControlledOutputStream implements Stream {
   private static final Logger log = Logger.getLogger(ControlledOutputStream.class.getName());
 
   /**
-   * Number of characters per line in the hexadecimal mode.
+   * Default size of the block buffer in bytes.
    */
-  protected static final int BYTES_PER_LINE = 16;
+  public static final int DEFAULT_BUFFER_SIZE = 0x10000;
 
   // constants
   protected static final BigInteger MASK = Constants.FF;
+  protected static final long LONG_MASK = 0xffL;
 
   // fields
   private InputTreeProcessor processor;
   private OutputStream outputStream;
+  private WritableByteChannel channel;
+  private ByteBuffer buffer;
   private boolean discard;
   private boolean hexMode;
-  private int hexCount;
+  private HexEncoder hexEncoder;
   private int streamNumber;
   private int streamLength;
   private int totalLength;
@@ -104,6 +117,84 @@ public class ControlledOutputStream implements Stream {
     return hexMode;
   }
 
+  /**
+   * Checks whether bytes written to the stream are copied to
+   * the underlying output stream unchanged and without any side
+   * effects.
+   *
+   * @return <code>true</code> if neither the discard mode nor
+   *         the hexadecimal mode is on and no variable is bound
+   *         to the stream
+   */
+  public boolean isTransparent() {
+    return !discard && !hexMode && !processor.hasListeners(Variable.Type.OUTPUT_STREAM);
+  }
+
+  /**
+   * Sets the number of bytes per line in the hexadecimal mode.
+   *
+   * @param     bytesPerLine number of bytes per line
+   * @exception IOException  on I/O error
+   */
+  public void setHexBytesPerLine(final int bytesPerLine) throws IOException {
+    log.finer("Setting hex bytesPerLine to: " + bytesPerLine);
+    hexEncoder.setBytesPerLine(bytesPerLine);
+  }
+
+  /**
+   * Gets the number of bytes per line in the hexadecimal mode.
+   *
+   * @return number of bytes per line
+   */
+  public int getHexBytesPerLine() {
+    return hexEncoder.getBytesPerLine();
+  }
+
+  /**
+   * Sets the offset column switch of the hexadecimal mode.
+   *
+   * @param hexOffsets if <code>true</code>, each line is preceded by
+   *                   the offset of its first byte
+   */
+  public void setHexOffsets(final boolean hexOffsets) {
+    log.finer("Setting hexOffsets to: " + hexOffsets);
+    hexEncoder.setOffsets(hexOffsets);
+  }
+
+  /**
+   * Gets the offset column switch of the hexadecimal mode.
+   *
+   * @return value of the offset column switch
+   */
+  public boolean getHexOffsets() {
+    return hexEncoder.getOffsets();
+  }
+
+  /**
+   * Sets the size of the block buffer.  Any data already buffered
+   * is written to the underlying output stream first.
+   *
+   * @param     bufferSize  size of the block buffer in bytes
+   * @exception IOException on I/O error
+   */
+  public void setBufferSize(final int bufferSize) throws IOException {
+    log.finer("Setting bufferSize to: " + bufferSize);
+    if (buffer.capacity() != bufferSize) {
+      drain();
+      buffer = ByteBuffer.allocate(bufferSize);
+    }
+  }
+
+  /**
+   * Gets the size of the block buffer.
+   *
+   * @return size of the block buffer in bytes
+   */
+  public int getBufferSize() {
+    log.finer("Getting bufferSize: " + buffer.capacity());
+    return buffer.capacity();
+  }
+
   /**
    * Gets the stream number.
    *
@@ -135,10 +226,15 @@ public class ControlledOutputStream implements Stream {
   }
 
   /**
-   * Resets the stream counters.
+   * Resets the stream counters.  The buffered data is written to
+   * the underlying output stream.
+   *
+   * @exception IOException on I/O error
    */
-  public void resetStream() {
+  public void resetStream() throws IOException {
     log.finer("Stream counters reset");
+    hexEncoder.flush();
+    drain();
     streamLength = 0;
     streamNumber++;
   }
@@ -150,14 +246,86 @@ public class ControlledOutputStream implements Stream {
     reset();
   }
 
+  // writes the contents of the buffer to the output stream
+  private void drain() throws IOException {
+    if (buffer.position() > 0) {
+      log.finer("Draining " + buffer.position() + " bytes from ControlledOutputStream");
+      outputStream.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+      buffer.clear();
+    }
+  }
+
   /**
-   * Write a newline to the controlled output stream.
+   * Copies a region of a file directly to the underlying output
+   * stream, bypassing the buffer.  The buffered data is written
+   * first.  It may only be used if the stream is transparent.
    *
+   * @param     source      the channel of the file
+   * @param     position    position of the first byte to be copied
+   * @param     count       maximum number of bytes to be copied
+   * @return                number of bytes actually copied
    * @exception IOException on I/O error
+   * @see       #isTransparent
    */
-  public void newLine() throws IOException {
-    log.finest("Writing newlien to ControlledOutputStream");
-    outputStream.write(String.format("%n").getBytes());
+  public long transferFrom(final FileChannel source, final long position, final long count) throws IOException {
+    log.finer("Transferring " + count + " bytes to ControlledOutputStream");
+    drain();
+    if (channel == null) {
+      channel = (outputStream instanceof FileOutputStream)
+          ? ((FileOutputStream) outputStream).getChannel() : Channels.newChannel(outputStream);
+    }
+    long transferred = 0;
+    while (transferred < count) {
+      final long n = source.transferTo(position + transferred, count - transferred, channel);
+      if (n <= 0) {
+        break;
+      }
+      transferred += n;
+    }
+    if (transferred > 0) {
+      final ByteBuffer last = ByteBuffer.allocate(1);
+      source.read(last, position + transferred - 1);
+      processor.getScriptProcessor().putUnsignedValue(last.get(0) & LONG_MASK);
+      totalLength += transferred;
+      streamLength += transferred;
+    }
+    return transferred;
+  }
+
+  // puts one byte to the buffer
+  private void put(final int b) throws IOException {
+    if (!buffer.hasRemaining()) {
+      drain();
+    }
+    buffer.put((byte) b);
+  }
+
+  // puts an array of bytes to the buffer
+  private void put(final byte[] bytes, final int offset, final int length) throws IOException {
+    if (length > buffer.remaining()) {
+      drain();
+      if (length > buffer.capacity()) {
+        outputStream.write(bytes, offset, length);
+        return;
+      }
+    }
+    buffer.put(bytes, offset, length);
+  }
+
+  // sink for the hexadecimal encoder
+  private class BufferSink extends OutputStream {
+
+    // for description see OutputStream
+    @Override
+    public void write(final int b) throws IOException {
+      put(b);
+    }
+
+    // for description see OutputStream
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+      put(bytes, offset, length);
+    }
   }
 
   // for description see Object
@@ -170,7 +338,16 @@ public class ControlledOutputStream implements Stream {
   @Override
   public void write(final BigInteger arg) throws IOException {
     log.finest("Writing to ControlledOutputStream: " + Util.bigIntegerToString(arg));
-    final BigInteger value = arg.and(MASK);
+    write(arg.longValue());
+  }
+
+  // for description see Object
+  @Override
+  public void write(final long arg) throws IOException {
+    if (log.isLoggable(Level.FINEST)) {
+      log.finest("Writing long to ControlledOutputStream: " + Long.toUnsignedString(arg));
+    }
+    final int value = (int) (arg & LONG_MASK);
     try {
       processor.trigger(Variable.Type.OUTPUT_STREAM, value);
     } catch (final ProcessorException exception) {
@@ -178,23 +355,66 @@ public class ControlledOutputStream implements Stream {
     }
     if (!discard) {
       if (hexMode) {
-        outputStream.write(String.format(
-            "%s%02x", (((hexCount % BYTES_PER_LINE) != 0) ? " " : ""), value.intValue()).getBytes());
-        if (((++hexCount) % BYTES_PER_LINE) == 0) {
-          newLine();
-        }
+        hexEncoder.write(value);
       } else {
-        outputStream.write(value.intValue());
+        put(value);
       }
       totalLength++;
     }
     streamLength++;
   }
 
+  // for description see Stream
+  @Override
+  public void write(final byte[] data, final int offset, final int length) throws IOException {
+    log.finest("Writing block of " + length + " bytes to ControlledOutputStream");
+    if (processor.hasListeners(Variable.Type.OUTPUT_STREAM)
+        && !processor.trigger(Variable.Type.OUTPUT_STREAM, data, offset, length)) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        write(data[i] & LONG_MASK);
+      }
+      return;
+    }
+    if (!discard) {
+      if (hexMode) {
+        hexEncoder.write(data, offset, length);
+      } else {
+        put(data, offset, length);
+      }
+      totalLength += length;
+    }
+    streamLength += length;
+    if (length > 0) {
+      processor.getScriptProcessor().putUnsignedValue(data[offset + length - 1] & LONG_MASK);
+    }
+  }
+
+  // for description see Stream
+  @Override
+  public void write(final long[] data, final int offset, final int length) throws IOException {
+    log.finest("Writing block of " + length + " longs to ControlledOutputStream");
+    if (processor.hasListeners(Variable.Type.OUTPUT_STREAM)) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        write(data[i]);
+      }
+      return;
+    }
+    final byte[] bytes = new byte[Math.min(length, Constants.BLOCK_SIZE)];
+    for (int i = offset, end = offset + length; i < end; i += bytes.length) {
+      final int n = Math.min(bytes.length, end - i);
+      for (int j = 0; j < n; j++) {
+        bytes[j] = (byte) data[i + j];
+      }
+      write(bytes, 0, n);
+    }
+  }
+
   // for description see Object
   @Override
   public void flush() throws IOException {
     log.finer("Flushing ControlledOutputStream");
+    hexEncoder.flush();
+    drain();
     if (!discard) {
       outputStream.flush();
     }
@@ -204,9 +424,8 @@ public class ControlledOutputStream implements Stream {
   @Override
   public void close() throws IOException {
     log.fine("Closing ControlledOutputStream");
-    if (hexMode && (hexCount != 0) && ((hexCount % BYTES_PER_LINE) != 0)) {
-      newLine();
-    }
+    hexEncoder.finish();
+    drain();
     outputStream.close();
   }
 
@@ -217,16 +436,30 @@ public class ControlledOutputStream implements Stream {
   }
 
   /**
-   * Main constructor.
+   * Simplified constructor, with the default buffer size.
    *
    * @param processor    input tree processor object
    * @param outputStream downstream output stream
    */
   public ControlledOutputStream(final InputTreeProcessor processor, final OutputStream outputStream) {
+    this(processor, outputStream, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Main constructor.
+   *
+   * @param processor    input tree processor object
+   * @param outputStream downstream output stream
+   * @param bufferSize   size of the block buffer in bytes
+   */
+  public ControlledOutputStream(final InputTreeProcessor processor, final OutputStream outputStream,
+      final int bufferSize) {
     log.fine("ControlledOutputStream creation started");
 
     this.processor = processor;
     this.outputStream = outputStream;
+    buffer = ByteBuffer.allocate(bufferSize);
+    hexEncoder = new HexEncoder(new BufferSink(), HexEncoder.DEFAULT_BYTES_PER_LINE, false);
 
     log.fine("ControlledOutputStream creation completed");
   }
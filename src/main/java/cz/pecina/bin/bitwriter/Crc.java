@@ -29,6 +29,11 @@ import java.util.logging.Logger;
 /**
  * CRC calculator.
  *
+ * <p>Single bits are not applied to the register at once, they are
+ * accumulated until a whole byte is available, which is then
+ * processed using the table.  Any remaining bits are applied one at
+ * a time before the register is accessed or updated otherwise.
+ *
  * @author Tomáš Pecina
  * @version 1.0.5
  */
@@ -42,17 +47,53 @@ public class Crc extends Calculator {
   protected BigInteger mask;
   protected int shift;
   protected BigInteger[] table;
+  protected int pendingBits;
+  protected int pendingCount;
+
+  // applies the pending bits to the register, one at a time
+  private void flushBits() {
+    final int count = pendingCount;
+    final int bits = pendingBits;
+    pendingCount = 0;
+    pendingBits = 0;
+    for (int i = 0; i < count; i++) {
+      final boolean bit = ((model.getReflectIn() ? (bits >> i) : (bits >> (count - i - 1))) & 1) != 0;
+      if (register.testBit(model.getPolynomial().getWidth() - 1) != bit) {
+        register = register.shiftLeft(1).xor(model.getPolynomial().getPolynomial()).and(mask);
+      } else {
+        register = register.shiftLeft(1).and(mask);
+      }
+    }
+  }
+
+  // updates the register with a byte, using the table
+  private void updateByte(final int b) {
+    if (model.getReflectIn()) {
+      register = Util.reflect(register, model.getPolynomial().getWidth() + shift);
+      final int i = (register.shiftRight(shift).intValue() ^ b) & 0xff;
+      register = register.shiftRight(8).xor(table[i]).and(mask.shiftLeft(shift));
+      register = Util.reflect(register, model.getPolynomial().getWidth() + shift).and(mask);
+    } else {
+      register = register.shiftLeft(shift);
+      final int i = (register.shiftRight(model.getPolynomial().getWidth() + shift - 8).intValue() ^ b) & 0xff;
+      register = register.shiftLeft(8 - shift).xor(table[i]).and(mask.shiftLeft(shift));
+      register = register.shiftRight(shift);
+    }
+  }
 
   // for description see Calculator
   @Override
   public void setRegister(final BigInteger value) {
     log.finer("Setting register to: " + Util.bigIntegerToString(value));
+    pendingCount = 0;
+    pendingBits = 0;
     register = value.xor(model.getXorIn()).and(mask);
   }
 
   // for description see Calculator
   @Override
   public BigInteger getRegister() {
+    flushBits();
     BigInteger n = register;
     if (model.getReflectOut()) {
       n = Util.reflect(n, model.getPolynomial().getWidth());
@@ -65,11 +106,17 @@ public class Crc extends Calculator {
   // for description see Calculator
   @Override
   public void updateBit(final int b) {
-    log.finest("Updating CRC with: " + b);
-    if (register.testBit(model.getPolynomial().getWidth() - 1) == (b == 0)) {
-      register = register.shiftLeft(1).xor(model.getPolynomial().getPolynomial()).and(mask);
+    final int bit = (b == 0) ? 0 : 1;
+    if (model.getReflectIn()) {
+      pendingBits |= bit << pendingCount;
     } else {
-      register = register.shiftLeft(1).and(mask);
+      pendingBits = (pendingBits << 1) | bit;
+    }
+    if (++pendingCount == 8) {
+      final int d = pendingBits;
+      pendingCount = 0;
+      pendingBits = 0;
+      updateByte(d);
     }
   }
 
@@ -84,17 +131,25 @@ public class Crc extends Calculator {
   @Override
   public void update(final byte[] d) {
     log.finer("Updating CRC with an array of length: " + d.length);
+    update(d, 0, d.length);
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final byte[] d, final int offset, final int length) {
+    flushBits();
+    final int end = offset + length;
     if (model.getReflectIn()) {
       register = Util.reflect(register, model.getPolynomial().getWidth() + shift);
-      for (byte b : d) {
-        final int i = (register.shiftRight(shift).intValue() ^ b) & 0xff;
+      for (int j = offset; j < end; j++) {
+        final int i = (register.shiftRight(shift).intValue() ^ d[j]) & 0xff;
         register = register.shiftRight(8).xor(table[i]).and(mask.shiftLeft(shift));
       }
       register = Util.reflect(register, model.getPolynomial().getWidth() + shift).and(mask);
     } else {
       register = register.shiftLeft(shift);
-      for (byte b : d) {
-        final int i = (register.shiftRight(model.getPolynomial().getWidth() + shift - 8).intValue() ^ b) & 0xff;
+      for (int j = offset; j < end; j++) {
+        final int i = (register.shiftRight(model.getPolynomial().getWidth() + shift - 8).intValue() ^ d[j]) & 0xff;
         register = register.shiftLeft(8 - shift).xor(table[i]).and(mask.shiftLeft(shift));
       }
       register = register.shiftRight(shift);
@@ -105,17 +160,8 @@ public class Crc extends Calculator {
   @Override
   public void update(final int b) {
     log.finest("Updating CRC with: " + b);
-    if (model.getReflectIn()) {
-      register = Util.reflect(register, model.getPolynomial().getWidth() + shift);
-      final int i = (register.shiftRight(shift).intValue() ^ b) & 0xff;
-      register = register.shiftRight(8).xor(table[i]).and(mask.shiftLeft(shift));
-      register = Util.reflect(register, model.getPolynomial().getWidth() + shift).and(mask);
-    } else {
-      register = register.shiftLeft(shift);
-      final int i = (register.shiftRight(model.getPolynomial().getWidth() + shift - 8).intValue() ^ b) & 0xff;
-      register = register.shiftLeft(8 - shift).xor(table[i]).and(mask.shiftLeft(shift));
-      register = register.shiftRight(shift);
-    }
+    flushBits();
+    updateByte(b);
   }
 
   // for description see Calculator
@@ -125,18 +171,256 @@ public class Crc extends Calculator {
     update(b.and(Constants.FF).intValue());
   }
 
+  /**
+   * Gets the register in its canonical form, i.e., neither reflected
+   * nor xor'ed.
+   *
+   * @return the canonical value of the register
+   */
+  protected BigInteger getCanonicalRegister() {
+    flushBits();
+    return register;
+  }
+
+  /**
+   * Sets the register in its canonical form, i.e., neither reflected
+   * nor xor'ed.
+   *
+   * @param value the new canonical value of the register
+   */
+  protected void setCanonicalRegister(final BigInteger value) {
+    pendingCount = 0;
+    pendingBits = 0;
+    register = value;
+  }
+
+  // converts a CRC value to the canonical form of the register
+  private BigInteger valueToRegister(final BigInteger value) {
+    BigInteger n = value.xor(model.getXorOut()).and(mask);
+    if (model.getReflectOut()) {
+      n = Util.reflect(n, model.getPolynomial().getWidth());
+    }
+    return n;
+  }
+
+  // converts the canonical form of the register to a CRC value
+  private BigInteger registerToValue(final BigInteger value) {
+    BigInteger n = value;
+    if (model.getReflectOut()) {
+      n = Util.reflect(n, model.getPolynomial().getWidth());
+    }
+    return n.xor(model.getXorOut());
+  }
+
+  // multiplies a polynomial by x modulo the generator polynomial
+  private BigInteger multiplyByX(final BigInteger a) {
+    final BigInteger n = a.shiftLeft(1);
+    return n.testBit(model.getPolynomial().getWidth()) ? n.xor(model.getPolynomial().getPolynomial()).and(mask) : n;
+  }
+
+  // multiplies two polynomials modulo the generator polynomial
+  private BigInteger multiply(final BigInteger a, final BigInteger b) {
+    BigInteger r = BigInteger.ZERO;
+    BigInteger n = a;
+    for (int i = 0; i < b.bitLength(); i++) {
+      if (b.testBit(i)) {
+        r = r.xor(n);
+      }
+      n = multiplyByX(n);
+    }
+    return r;
+  }
+
+  /**
+   * Calculates the canonical form of the register after a number of
+   * zero bytes have been processed, starting from a given register
+   * value and with no initial or final xor'ing, i.e., multiplies
+   * the register by <i>x</i><sup>8<i>n</i></sup> modulo the generator
+   * polynomial.
+   *
+   * @param  value  the initial canonical value of the register
+   * @param  length number of zero bytes
+   * @return        the final canonical value of the register
+   */
+  protected BigInteger shift(final BigInteger value, final long length) {
+    BigInteger p = BigInteger.ONE;
+    for (int i = 0; i < 8; i++) {
+      p = multiplyByX(p);
+    }
+    BigInteger r = value;
+    for (long n = length; n != 0; n >>>= 1) {
+      if ((n & 1) != 0) {
+        r = multiply(r, p);
+      }
+      p = multiply(p, p);
+    }
+    return r;
+  }
+
+  /**
+   * Combines the CRC values of two blocks of bytes, in the manner of
+   * zlib's <code>crc32_combine</code>.
+   *
+   * @param  crcA    the CRC value of the first block
+   * @param  crcB    the CRC value of the second block
+   * @param  lengthB length of the second block, in bytes
+   * @return         the CRC value of the two blocks concatenated
+   */
+  public BigInteger combine(final BigInteger crcA, final BigInteger crcB, final long lengthB) {
+    log.finer("Combining CRC values: " + Util.bigIntegerToString(crcA) + ", " + Util.bigIntegerToString(crcB)
+        + ", length: " + lengthB);
+    final BigInteger initial = model.getXorIn().and(mask);
+    return registerToValue(valueToRegister(crcB).xor(shift(valueToRegister(crcA).xor(initial), lengthB)));
+  }
+
+  /**
+   * Updates the register as if a block of bytes with the given CRC
+   * value were processed, without accessing the data.
+   *
+   * @param crcB    the CRC value of the block
+   * @param lengthB length of the block, in bytes
+   */
+  public void append(final BigInteger crcB, final long lengthB) {
+    log.finer("Appending CRC value: " + Util.bigIntegerToString(crcB) + ", length: " + lengthB);
+    final BigInteger initial = model.getXorIn().and(mask);
+    setCanonicalRegister(valueToRegister(crcB).xor(shift(getCanonicalRegister().xor(initial), lengthB)));
+  }
+
+  /**
+   * Calculates a block of bytes which, if processed next, sets
+   * the CRC value to the given target, without changing the state of
+   * the calculator.  As the CRC value is an affine function of
+   * the block, the block is found by solving a system of linear
+   * equations over GF(2).  The column of the matrix belonging to
+   * a bit of the block is the contribution of the bit to the register,
+   * multiplied by <i>x</i><sup>8<i>n</i></sup>, <i>n</i> being
+   * the number of bytes following it, so the columns are only
+   * calculated until the rank of the matrix reaches the width of
+   * the polynomial and the time needed does not depend on the length
+   * of the block.
+   *
+   * @param  value  the target CRC value
+   * @param  length length of the block, in bytes
+   * @return        the block or <code>null</code> if the target cannot
+   *                be reached with a block of this length
+   */
+  public byte[] force(final BigInteger value, final int length) {
+    log.finer("Forcing CRC value: " + Util.bigIntegerToString(value) + ", length: " + length);
+    final BigInteger start = getCanonicalRegister();
+    final int width = model.getPolynomial().getWidth();
+    final BigInteger base = registerToValue(shift(start, length));
+
+    // contributions of the single bits of a byte to the register
+    final BigInteger[] bits = new BigInteger[8];
+    for (int j = 0; j < 8; j++) {
+      setCanonicalRegister(BigInteger.ZERO);
+      update(1 << j);
+      bits[j] = getCanonicalRegister();
+    }
+    setCanonicalRegister(start);
+
+    // basis of the column space, indexed by the pivot bit, with the combinations of input bits producing it
+    final BigInteger[] basis = new BigInteger[width];
+    final BigInteger[] combinations = new BigInteger[width];
+    int rank = 0;
+    BigInteger factor = null;
+    for (int i = 0; (i < (length * 8)) && (rank < width); i++) {
+      if ((i & 7) == 0) {
+        factor = shift(BigInteger.ONE, length - 1 - (i >> 3));
+      }
+      BigInteger column = multiply(bits[i & 7], factor);
+      if (model.getReflectOut()) {
+        column = Util.reflect(column, width);
+      }
+      BigInteger combination = BigInteger.ONE.shiftLeft(i);
+      for (int pivot = width - 1; pivot >= 0; pivot--) {
+        if (column.testBit(pivot)) {
+          if (basis[pivot] == null) {
+            basis[pivot] = column;
+            combinations[pivot] = combination;
+            rank++;
+            break;
+          }
+          column = column.xor(basis[pivot]);
+          combination = combination.xor(combinations[pivot]);
+        }
+      }
+    }
+
+    if ((value.signum() < 0) || (value.bitLength() > width)) {
+      return null;
+    }
+    BigInteger target = value.xor(base);
+    BigInteger solution = BigInteger.ZERO;
+    for (int pivot = width - 1; pivot >= 0; pivot--) {
+      if (target.testBit(pivot)) {
+        if (basis[pivot] == null) {
+          log.finer("No solution found");
+          return null;
+        }
+        target = target.xor(basis[pivot]);
+        solution = solution.xor(combinations[pivot]);
+      }
+    }
+    final byte[] d = new byte[length];
+    for (int i = 0; i < solution.bitLength(); i++) {
+      if (solution.testBit(i)) {
+        d[i >> 3] |= (byte) (1 << (i & 7));
+      }
+    }
+    log.finer("Solution found");
+    return d;
+  }
+
   // for description see Object
   @Override
   public String toString() {
     return "Crc";
   }
 
+  /**
+   * Creates the most efficient CRC calculator available for the model.
+   *
+   * @param  model model to be used for the calculator
+   * @return       new CRC calculator
+   */
+  public static Crc create(final CrcModel model) {
+    if (IntrinsicCrc.isSupported(model)) {
+      return new IntrinsicCrc(model);
+    }
+    if (model.getPolynomial().getWidth() <= Long.SIZE) {
+      return new LongCrc(model);
+    }
+    return new Crc(model);
+  }
+
+  /**
+   * Gets the model of the calculator.
+   *
+   * @return the model used by the calculator
+   */
+  public CrcModel getModel() {
+    return model;
+  }
+
   /**
    * Main constructor.
    *
    * @param model model to be used for the calculator
    */
   public Crc(final CrcModel model) {
+    this(model, true);
+  }
+
+  /**
+   * Constructor for subclasses with their own representation of
+   * the register.
+   *
+   * @param model       model to be used for the calculator
+   * @param createTable if <code>false</code>, neither the register nor
+   *                    the <code>BigInteger</code> table is set up
+   */
+  protected Crc(final CrcModel model, final boolean createTable) {
     log.fine("CRC object creation started, with polynomial: "
         + Util.bigIntegerToString(model.getPolynomial().getPolynomial()) + ", width: " + model.getPolynomial().getWidth());
     this.model = model;
@@ -145,27 +429,9 @@ public class Crc extends Calculator {
     if (model.getPolynomial().getWidth() < 8) {
       shift = 8 - model.getPolynomial().getWidth();
     }
-    register = model.getXorIn().and(mask);
-    table = new BigInteger[0x100];
-    BigInteger p = model.getPolynomial().getPolynomial().shiftLeft(shift);
-    BigInteger m = mask.shiftLeft(shift);
-    for (int i = 0; i < 0x100; i++) {
-      BigInteger n = BigInteger.valueOf(i);
-      if (model.getReflectIn()) {
-        n = Util.reflect(n, 8);
-      }
-      n = n.shiftLeft(model.getPolynomial().getWidth() + shift - 8);
-      for (int j = 0; j < 8; j++) {
-        if (n.testBit(model.getPolynomial().getWidth() + shift - 1)) {
-          n = n.shiftLeft(1).xor(p);
-        } else {
-          n = n.shiftLeft(1);
-        }
-      }
-      if (model.getReflectIn()) {
-        n = Util.reflect(n.shiftRight(shift), model.getPolynomial().getWidth()).shiftLeft(shift);
-      }
-      table[i] = n.and(m);
+    if (createTable) {
+      register = model.getXorIn().and(mask);
+      table = CrcTables.getTable(model);
     }
     log.fine("CRC object creation completed");
   }
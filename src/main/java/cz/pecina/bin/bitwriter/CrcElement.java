@@ -55,7 +55,7 @@ public class CrcElement extends VariableElement {
     if (element.hasAttribute("model")) {
       final String modelName = processor.getScriptProcessor().evalAsString(element.getAttribute("model"));
       log.fine("CRC model attribute found, loading model for: " + modelName);
-      final CrcModel crcModel = processor.getPresetCrcModels().getExtended(modelName);
+      final CrcModel crcModel = processor.getPresetCrcModels().getChecked(modelName);
       if (crcModel == null) {
         throw new ProcessorException("Undefined CRC model '" + modelName + "'");
       }
@@ -88,7 +88,7 @@ public class CrcElement extends VariableElement {
         + "xorIn: %s, reflectOut: %s, xorOut: %s", width, Util.bigIntegerToString(polynomial), reflectIn,
         Util.bigIntegerToString(xorIn), reflectOut, Util.bigIntegerToString(xorOut)));
     try {
-      variable.setCalculator(new Crc(new CrcModel(polynomialObject, reflectIn, xorIn, reflectOut, xorOut)));
+      variable.setCalculator(Crc.create(new CrcModel(polynomialObject, reflectIn, xorIn, reflectOut, xorOut)));
     } catch (final NumberFormatException | NullPointerException exception) {
       throw new ProcessorException("Illegal value in CRC model");
     }
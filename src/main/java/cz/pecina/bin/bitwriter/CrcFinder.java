@@ -0,0 +1,430 @@
+/* CrcFinder.java
+ *
+ * Copyright (C) 2015-19, Tomas Pecina <tomas@pecina.cz>
+ *
+ * This file is part of cz.pecina.bin, a suite of binary-file
+ * processing applications.
+ *
+ * This application is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The source code is available from <https://github.com/tompecina/bitwriter>.
+ */
+
+package cz.pecina.bin.bitwriter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Logger;
+
+/**
+ * Finder of CRC models matching sample messages with known CRC values.
+ *
+ * <p>First, the preset models are tried.  Then, the polynomials of
+ * the given width are searched, in parallel, on the common fork/join
+ * pool.  As the CRC is an affine function of the message, the xor of
+ * the CRC values of two messages of the same length only depends on
+ * the polynomial, the reflections and the xor of the messages, so
+ * the polynomials are pruned using such pairs, without knowing
+ * the initial and final xor values.  These are then calculated by
+ * solving a system of linear equations over GF(2), for which two
+ * messages of different lengths are needed; otherwise, the initial
+ * value cannot be determined from the samples and is assumed to be
+ * zero.
+ *
+ * <p>The pruning calculates the CRC bit by bit, without a table.
+ * Nearly all polynomials are rejected by the first, i.e., the
+ * shortest, difference, typically a few bytes long, while building
+ * a byte table takes as many steps as a 256-byte message; moreover,
+ * the tables of the polynomials tried only once would just flood the
+ * cache of {@link CrcTables}.  Only for differences of at least
+ * 256 bytes, an uncached byte table is built for the polynomial
+ * and used for the rest of its pairs.
+ *
+ * @author Tomáš Pecina
+ * @version 1.0.5
+ * @see CrcModel
+ */
+public class CrcFinder {
+
+  // static logger
+  private static final Logger log = Logger.getLogger(CrcFinder.class.getName());
+
+  /**
+   * Maximum width of the polynomial for the search.
+   */
+  public static final int MAX_SEARCH_WIDTH = Long.SIZE - 1;
+
+  // minimum length of the difference for which a table is built
+  private static final int TABLE_THRESHOLD = 0x100;
+
+  // a sample message with its CRC value
+  private static final class Sample {
+
+    // fields
+    private final byte[] message;
+    private final BigInteger crc;
+
+    // main constructor
+    private Sample(final byte[] message, final BigInteger crc) {
+      this.message = message;
+      this.crc = crc;
+    }
+  }
+
+  // a pair of samples of the same length, used for pruning
+  private static final class Pair {
+
+    // fields
+    private final byte[] difference;
+    private final long crc;
+
+    // main constructor
+    private Pair(final byte[] difference, final long crc) {
+      this.difference = difference;
+      this.crc = crc;
+    }
+  }
+
+  // fields
+  protected final List<Sample> samples = new ArrayList<>();
+  protected int defaultWidth;
+  protected boolean initialDetermined;
+
+  /**
+   * Adds a sample.
+   *
+   * @param message the message
+   * @param crc     its CRC value
+   */
+  public void addSample(final byte[] message, final BigInteger crc) {
+    log.finer("Adding sample of length " + message.length + ", CRC: " + Util.bigIntegerToString(crc));
+    samples.add(new Sample(message, crc));
+  }
+
+  /**
+   * Reads samples from a stream.  Each line of the stream contains
+   * the message and its CRC value, both in hexadecimal notation,
+   * separated by white space.  Empty lines and lines starting with
+   * "#" are ignored.
+   *
+   * @param     inputStream        the stream
+   * @exception ProcessorException on error in the samples
+   * @exception IOException        on I/O error
+   */
+  public void readSamples(final InputStream inputStream) throws ProcessorException, IOException {
+    log.fine("Reading samples");
+    final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+    int lineNumber = 0;
+    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+      lineNumber++;
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      final String[] fields = line.split("\\s+");
+      if ((fields.length != 2) || ((fields[0].length() % 2) != 0)) {
+        throw new ProcessorException("Error in samples file, line " + lineNumber);
+      }
+      try {
+        final byte[] message = new byte[fields[0].length() / 2];
+        for (int i = 0; i < message.length; i++) {
+          message[i] = (byte) Integer.parseInt(fields[0].substring(2 * i, 2 * i + 2), 16);
+        }
+        addSample(message, new BigInteger(fields[1], 16));
+      } catch (final NumberFormatException exception) {
+        throw new ProcessorException("Error in samples file, line " + lineNumber);
+      }
+      defaultWidth = Math.max(defaultWidth, fields[1].length() * 4);
+    }
+    if (samples.isEmpty()) {
+      throw new ProcessorException("No samples found");
+    }
+    log.fine("Samples read: " + samples.size());
+  }
+
+  /**
+   * Gets the default width of the polynomial for the search, derived
+   * from the number of digits of the CRC values read.
+   *
+   * @return the default width
+   */
+  public int getDefaultWidth() {
+    return defaultWidth;
+  }
+
+  // checks whether a CRC calculator matches all samples
+  private boolean matches(final CrcModel model) {
+    final Crc crc = Crc.create(model);
+    for (Sample sample : samples) {
+      crc.setRegister(BigInteger.ZERO);
+      crc.update(sample.message);
+      if (!crc.getRegister().equals(sample.crc)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Finds the preset models matching all samples.
+   *
+   * @param  presetCrcModels the preset models
+   * @return                 the list of matching models
+   */
+  public List<CrcModel> findPresets(final PresetCrcModels presetCrcModels) {
+    log.fine("Trying preset models");
+    final List<CrcModel> r = new ArrayList<>();
+    for (CrcModel model : presetCrcModels) {
+      if (matches(model)) {
+        log.fine("Preset model matches: " + model.getId());
+        r.add(model);
+      }
+    }
+    return r;
+  }
+
+  // calculates the CRC of a message with zero initial value, no reflection of the output and no final xor
+  static long linear(final long polynomial, final int width, final boolean reflectIn, final byte[] d) {
+    final long p = polynomial << (Long.SIZE - width);
+    long r = 0;
+    for (byte b : d) {
+      r ^= (reflectIn ? (long) (Integer.reverse(b) >>> 24) : (b & 0xffL)) << (Long.SIZE - 8);
+      for (int i = 0; i < 8; i++) {
+        r = (r << 1) ^ ((r >> (Long.SIZE - 1)) & p);
+      }
+    }
+    return r >>> (Long.SIZE - width);
+  }
+
+  // same as above, using a table built by CrcTables.buildLongTable
+  static long linear(final long[] table, final int width, final boolean reflectIn, final byte[] d) {
+    long r = 0;
+    if (reflectIn) {
+      for (byte b : d) {
+        r = (r >>> 8) ^ table[((int) r ^ b) & 0xff];
+      }
+      return reflect(r, width);
+    }
+    for (byte b : d) {
+      r = (r << 8) ^ table[((int) (r >>> (Long.SIZE - 8)) ^ b) & 0xff];
+    }
+    return r >>> (Long.SIZE - width);
+  }
+
+  // reflects the least significant bits of a long
+  private static long reflect(final long value, final int width) {
+    return Long.reverse(value) >>> (Long.SIZE - width);
+  }
+
+  // searches a range of polynomials, returns the candidates as {polynomial, reflectIn, reflectOut}
+  private static List<long[]> prune(final List<Pair> pairs, final int width, final long from, final long to) {
+    final List<long[]> r = new ArrayList<>();
+    for (long k = from; k < to; k++) {
+      final long polynomial = (k << 1) | 1L;
+      for (int reflectIn = 0; reflectIn < 2; reflectIn++) {
+        boolean normal = true;
+        boolean reflected = true;
+        long[] table = null;
+        for (Pair pair : pairs) {
+          final long n;
+          if (pair.difference.length >= TABLE_THRESHOLD) {
+            if (table == null) {
+              table = CrcTables.buildLongTable(polynomial, width, reflectIn != 0);
+            }
+            n = linear(table, width, reflectIn != 0, pair.difference);
+          } else {
+            n = linear(polynomial, width, reflectIn != 0, pair.difference);
+          }
+          normal &= (n == pair.crc);
+          reflected &= (n == reflect(pair.crc, width));
+          if (!normal && !reflected) {
+            break;
+          }
+        }
+        if (normal) {
+          r.add(new long[] {polynomial, reflectIn, 0});
+        }
+        if (reflected) {
+          r.add(new long[] {polynomial, reflectIn, 1});
+        }
+      }
+    }
+    return r;
+  }
+
+  // calculates the initial and final xor values for a candidate and checks it against all samples
+  private CrcModel complete(final long[] candidate, final int width) throws ProcessorException, PolynomialException {
+    final boolean reflectIn = candidate[1] != 0;
+    final boolean reflectOut = candidate[2] != 0;
+    final Polynomial polynomial = new Polynomial(Util.unsignedToBigInteger(candidate[0]), Polynomial.Notation.NORMAL,
+        width);
+    final Crc crc = Crc.create(new CrcModel(polynomial, reflectIn, BigInteger.ZERO, false, BigInteger.ZERO));
+    final Sample first = samples.get(0);
+    crc.update(first.message);
+    final BigInteger linearFirst = crc.getRegister();
+    final BigInteger valueFirst = reflectOut ? Util.reflect(first.crc, width) : first.crc;
+    BigInteger xorIn = BigInteger.ZERO;
+    for (Sample sample : samples) {
+      if (sample.message.length == first.message.length) {
+        continue;
+      }
+      crc.setRegister(BigInteger.ZERO);
+      crc.update(sample.message);
+      final BigInteger value = reflectOut ? Util.reflect(sample.crc, width) : sample.crc;
+      BigInteger target = valueFirst.xor(value).xor(linearFirst).xor(crc.getRegister());
+
+      // solves (x^(8*n1) + x^(8*n2)) * xorIn = target
+      final BigInteger[] basis = new BigInteger[width];
+      final BigInteger[] combinations = new BigInteger[width];
+      for (int i = 0; i < width; i++) {
+        BigInteger column = crc.shift(BigInteger.ONE.shiftLeft(i), first.message.length)
+            .xor(crc.shift(BigInteger.ONE.shiftLeft(i), sample.message.length));
+        BigInteger combination = BigInteger.ONE.shiftLeft(i);
+        for (int pivot = width - 1; pivot >= 0; pivot--) {
+          if (column.testBit(pivot)) {
+            if (basis[pivot] == null) {
+              basis[pivot] = column;
+              combinations[pivot] = combination;
+              break;
+            }
+            column = column.xor(basis[pivot]);
+            combination = combination.xor(combinations[pivot]);
+          }
+        }
+      }
+      for (int pivot = width - 1; pivot >= 0; pivot--) {
+        if (target.testBit(pivot)) {
+          if (basis[pivot] == null) {
+            return null;
+          }
+          target = target.xor(basis[pivot]);
+          xorIn = xorIn.xor(combinations[pivot]);
+        }
+      }
+      break;
+    }
+    final BigInteger n = valueFirst.xor(linearFirst).xor(crc.shift(xorIn, first.message.length));
+    final BigInteger xorOut = reflectOut ? Util.reflect(n, width) : n;
+    final CrcModel model = new CrcModel(polynomial, reflectIn, xorIn, reflectOut, xorOut);
+    return matches(model) ? model : null;
+  }
+
+  /**
+   * Searches for models of the given width matching all samples.
+   * At least two samples of the same length are needed.  Only
+   * polynomials with the constant term are searched.
+   *
+   * @param     width              width of the polynomial
+   * @return                       the list of matching models
+   * @exception ProcessorException on error in parameters or samples
+   */
+  public List<CrcModel> search(final int width) throws ProcessorException {
+    log.fine("Searching for models of width " + width);
+    if ((width < 1) || (width > MAX_SEARCH_WIDTH)) {
+      throw new ProcessorException("Illegal width for the CRC search: " + width);
+    }
+    initialDetermined = false;
+    for (Sample sample : samples) {
+      initialDetermined |= (sample.message.length != samples.get(0).message.length);
+    }
+    final List<Pair> pairs = new ArrayList<>();
+    for (int i = 0; i < samples.size(); i++) {
+      final Sample a = samples.get(i);
+      if (a.crc.bitLength() > width) {
+        return new ArrayList<>();
+      }
+      for (int j = i + 1; j < samples.size(); j++) {
+        final Sample b = samples.get(j);
+        if (a.message.length != b.message.length) {
+          continue;
+        }
+        int start = 0;
+        while ((start < a.message.length) && (a.message[start] == b.message[start])) {
+          start++;
+        }
+        final byte[] difference = new byte[a.message.length - start];
+        for (int k = 0; k < difference.length; k++) {
+          difference[k] = (byte) (a.message[start + k] ^ b.message[start + k]);
+        }
+        pairs.add(new Pair(difference, a.crc.xor(b.crc).longValue()));
+      }
+    }
+    if (pairs.isEmpty()) {
+      throw new ProcessorException("At least two samples of the same length are needed for the CRC search");
+    }
+    pairs.sort(Comparator.comparingInt(pair -> pair.difference.length));
+
+    final ForkJoinPool pool = ForkJoinPool.commonPool();
+    final long count = 1L << (width - 1);
+    final long tasks = Math.min(count, pool.getParallelism() * 16L);
+    final List<ForkJoinTask<List<long[]>>> futures = new ArrayList<>();
+    for (long i = 0; i < tasks; i++) {
+      final long from = (count / tasks) * i + Math.min(i, count % tasks);
+      final long to = from + (count / tasks) + ((i < (count % tasks)) ? 1 : 0);
+      futures.add(pool.submit(() -> prune(pairs, width, from, to)));
+    }
+    final List<CrcModel> r = new ArrayList<>();
+    try {
+      for (ForkJoinTask<List<long[]>> future : futures) {
+        for (long[] candidate : future.get()) {
+          final CrcModel model = complete(candidate, width);
+          if (model != null) {
+            log.fine("Model found, polynomial: " + Util.bigIntegerToString(model.getPolynomial().getPolynomial()));
+            r.add(model);
+          }
+        }
+      }
+    } catch (final InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new ProcessorException("CRC search interrupted");
+    } catch (final ExecutionException | PolynomialException exception) {
+      throw new ProcessorException("CRC search failed, exception: " + exception.getMessage());
+    }
+    log.fine("Search completed, models found: " + r.size());
+    return r;
+  }
+
+  /**
+   * Checks whether the initial values of the models found by the last
+   * search could be determined from the samples.
+   *
+   * @return <code>true</code> if the initial values were determined,
+   *         <code>false</code> if they were assumed to be zero
+   */
+  public boolean isInitialDetermined() {
+    return initialDetermined;
+  }
+
+  // for description see Object
+  @Override
+  public String toString() {
+    return "CrcFinder";
+  }
+
+  /**
+   * Main constructor.
+   */
+  public CrcFinder() {
+    log.fine("CRC finder set up");
+  }
+}
@@ -0,0 +1,148 @@
+/* CrcForceElement.java
+ *
+ * Copyright (C) 2015-19, Tomas Pecina <tomas@pecina.cz>
+ *
+ * This file is part of cz.pecina.bin, a suite of binary-file
+ * processing applications.
+ *
+ * This application is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The source code is available from <https://github.com/tompecina/bitwriter>.
+ */
+
+package cz.pecina.bin.bitwriter;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.logging.Logger;
+import org.w3c.dom.Element;
+
+/**
+ * Object representing a &lt;crc-force&gt; element.
+ *
+ * @author Tomáš Pecina
+ * @version 1.0.5
+ * @see Crc#force
+ */
+public class CrcForceElement extends VariableElement {
+
+  // static logger
+  private static final Logger log = Logger.getLogger(CrcForceElement.class.getName());
+
+  // writes a value to the stream the variable is bound to
+  private void write(final Variable.Type type, final int value) throws ProcessorException, IOException {
+    final BigInteger b = BigInteger.valueOf(value);
+    switch (type) {
+      case STREAM_IN:
+        processor.getInStream().write(b);
+        break;
+      case AGGREGATE_STREAM_IN:
+        processor.getInAggregateStream().write(b);
+        break;
+      case BITSTREAM:
+        processor.getBitStream().write(b);
+        break;
+      case AGGREGATE_STREAM_OUT:
+        processor.getOutAggregateStream().write(b);
+        break;
+      case STREAM_OUT:
+        processor.getOutStream().write(b);
+        break;
+      default:
+        processor.getControlledOutputStream().write(b);
+        break;
+    }
+  }
+
+  // checks whether the streams before the one of the given type hold no buffered data
+  private boolean isUpstreamEmpty(final Variable.Type type) {
+    switch (type) {
+      case STREAM_IN:
+        return true;
+      case AGGREGATE_STREAM_IN:
+      case BITSTREAM:
+        return processor.getInStream().isAggregateEmpty();
+      default:
+        return processor.getInStream().isEmpty();
+    }
+  }
+
+  // processes the element
+  private void process() throws ProcessorException, IOException {
+    log.fine("Processing <crc-force> element");
+
+    final Variable variable = getVariable(element);
+    if (variable == null) {
+      throw new ProcessorException("Error in input file, variable '" + getVariableName(element) + "' does not exist");
+    }
+    if (!(variable.getCalculator() instanceof Crc)) {
+      throw new ProcessorException("Error in input file, variable '" + variable.getName() + "' is not a CRC");
+    }
+    final Crc crc = (Crc) variable.getCalculator();
+    final Variable.Type type = variable.getType();
+    if (!isUpstreamEmpty(type)) {
+      throw new ProcessorException("CRC value cannot be forced, the streams hold incomplete data before the stream"
+          + " the variable is bound to");
+    }
+    final BigInteger value = extractBigIntegerAttribute(element, "value", BigInteger.ZERO, null, null,
+        processor.getScriptProcessor());
+    final int width = crc.getModel().getPolynomial().getWidth();
+    final int length = extractIntegerAttribute(element, "length", (width + 7) / 8, null, (width + 7) / 8,
+        processor.getScriptProcessor());
+    final byte[] d = crc.force(value, length);
+    if (d == null) {
+      throw new ProcessorException("CRC value " + Util.bigIntegerToString(value) + " cannot be forced with "
+          + length + " byte(s)");
+    }
+    for (byte b : d) {
+      if (type == Variable.Type.BITSTREAM) {
+        for (int i = 0; i < 8; i++) {
+          write(type, crc.getModel().getReflectIn() ? ((b >> i) & 1) : ((b >> (7 - i)) & 1));
+        }
+      } else {
+        write(type, b & 0xff);
+      }
+    }
+    if (!variable.getValue().equals(value)) {
+      throw new ProcessorException("CRC value could not be forced, the stream does not pass bytes unchanged");
+    }
+
+    log.fine("<crc-force> element processed");
+  }
+
+  // for description see Object
+  @Override
+  public String toString() {
+    return "CrcForceElement";
+  }
+
+  /**
+   * Main constructor.
+   *
+   * @param     processor          the input tree processor object
+   * @param     element            the <code>Element</code> object in
+   *                               the XML file
+   * @exception ProcessorException on error in parameters
+   * @exception IOException        on I/O error
+   */
+  public CrcForceElement(final InputTreeProcessor processor, final Element element)
+      throws ProcessorException, IOException {
+    super(processor, element);
+    log.fine("<crc-force> element creation started");
+
+    process();
+
+    log.fine("<crc-force> element set up");
+  }
+}
@@ -0,0 +1,215 @@
+/* CrcTables.java
+ *
+ * Copyright (C) 2015-19, Tomas Pecina <tomas@pecina.cz>
+ *
+ * This file is part of cz.pecina.bin, a suite of binary-file
+ * processing applications.
+ *
+ * This application is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The source code is available from <https://github.com/tompecina/bitwriter>.
+ */
+
+package cz.pecina.bin.bitwriter;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Cache of CRC tables, shared by all CRC calculators in the JVM.
+ * The tables only depend on the polynomial, its width and the input
+ * reflection, the other parameters of the model are irrelevant.
+ *
+ * <p>The returned arrays are shared and must never be modified.
+ *
+ * @author Tomáš Pecina
+ * @version 1.0.5
+ * @see Crc
+ * @see LongCrc
+ */
+public final class CrcTables {
+
+  // static logger
+  private static final Logger log = Logger.getLogger(CrcTables.class.getName());
+
+  // maximum number of cached tables of each kind, further tables are not cached
+  private static final int MAX_ENTRIES = 0x400;
+
+  // key of the cache
+  private static final class Key {
+
+    // fields
+    private final BigInteger polynomial;
+    private final int width;
+    private final boolean reflectIn;
+
+    // for description see Object
+    @Override
+    public boolean equals(final Object object) {
+      if (!(object instanceof Key)) {
+        return false;
+      }
+      final Key key = (Key) object;
+      return (width == key.width) && (reflectIn == key.reflectIn) && polynomial.equals(key.polynomial);
+    }
+
+    // for description see Object
+    @Override
+    public int hashCode() {
+      return (polynomial.hashCode() * 31 + width) * 2 + (reflectIn ? 1 : 0);
+    }
+
+    // main constructor
+    private Key(final CrcModel model) {
+      polynomial = model.getPolynomial().getPolynomial();
+      width = model.getPolynomial().getWidth();
+      reflectIn = model.getReflectIn();
+    }
+  }
+
+  // the caches
+  private static final Map<Key, BigInteger[]> tables = new ConcurrentHashMap<>();
+  private static final Map<Key, long[][]> longTables = new ConcurrentHashMap<>();
+
+  // builds the BigInteger table
+  private static BigInteger[] buildTable(final Key key) {
+    log.fine("Building CRC table");
+    final int shift = (key.width < 8) ? (8 - key.width) : 0;
+    final BigInteger[] table = new BigInteger[0x100];
+    final BigInteger p = key.polynomial.shiftLeft(shift);
+    final BigInteger m = Util.makeMask(key.width).shiftLeft(shift);
+    for (int i = 0; i < 0x100; i++) {
+      BigInteger n = BigInteger.valueOf(i);
+      if (key.reflectIn) {
+        n = Util.reflect(n, 8);
+      }
+      n = n.shiftLeft(key.width + shift - 8);
+      for (int j = 0; j < 8; j++) {
+        if (n.testBit(key.width + shift - 1)) {
+          n = n.shiftLeft(1).xor(p);
+        } else {
+          n = n.shiftLeft(1);
+        }
+      }
+      if (key.reflectIn) {
+        n = Util.reflect(n.shiftRight(shift), key.width).shiftLeft(shift);
+      }
+      table[i] = n.and(m);
+    }
+    return table;
+  }
+
+  /**
+   * Builds, without caching, the byte table used by {@link LongCrc}
+   * for a polynomial of at most 64 bits.  For input reflection, the
+   * entries are reflected and right-aligned, otherwise they are
+   * left-aligned.
+   *
+   * @param  polynomial the polynomial, in normal notation
+   * @param  width      the bit-width of the polynomial
+   * @param  reflectIn  <code>true</code> if the input is reflected
+   * @return            the 256-entry table
+   */
+  static long[] buildLongTable(final long polynomial, final int width, final boolean reflectIn) {
+    final long[] table = new long[0x100];
+    final long masked = polynomial & Util.makeLongMask(width);
+    final long p = reflectIn ? (Long.reverse(masked) >>> (Long.SIZE - width)) : (masked << (Long.SIZE - width));
+    for (int i = 0; i < 0x100; i++) {
+      long n;
+      if (reflectIn) {
+        n = i;
+        for (int j = 0; j < 8; j++) {
+          n = (n >>> 1) ^ (-(n & 1L) & p);
+        }
+      } else {
+        n = ((long) i) << (Long.SIZE - 8);
+        for (int j = 0; j < 8; j++) {
+          n = (n << 1) ^ (-(n >>> (Long.SIZE - 1)) & p);
+        }
+      }
+      table[i] = n;
+    }
+    return table;
+  }
+
+  // builds the slicing-by-8 long tables
+  private static long[][] buildLongTables(final Key key) {
+    log.fine("Building long CRC tables");
+    final long[][] table = new long[8][];
+    table[0] = buildLongTable(key.polynomial.longValue(), key.width, key.reflectIn);
+    for (int j = 1; j < table.length; j++) {
+      table[j] = new long[0x100];
+      for (int i = 0; i < 0x100; i++) {
+        final long n = table[j - 1][i];
+        table[j][i] = key.reflectIn ? ((n >>> 8) ^ table[0][(int) n & 0xff])
+            : ((n << 8) ^ table[0][(int) (n >>> (Long.SIZE - 8))]);
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Gets the table used by {@link Crc}.  For models with input
+   * reflection, the entries are reflected.  For polynomials narrower
+   * than 8 bits, the entries are shifted left so as to fill 8 bits.
+   *
+   * @param  model the CRC model
+   * @return       the 256-entry table
+   */
+  public static BigInteger[] getTable(final CrcModel model) {
+    final Key key = new Key(model);
+    final BigInteger[] table = tables.get(key);
+    if (table != null) {
+      return table;
+    }
+    if (tables.size() >= MAX_ENTRIES) {
+      return buildTable(key);
+    }
+    return tables.computeIfAbsent(key, CrcTables::buildTable);
+  }
+
+  /**
+   * Gets the slicing-by-8 tables used by {@link LongCrc}.  For models
+   * with input reflection, the entries are reflected and right-aligned,
+   * otherwise they are left-aligned.  Table <i>k</i> contains
+   * the contribution of a byte followed by <i>k</i> zero bytes.
+   *
+   * @param  model the CRC model, the width of the polynomial must not
+   *               exceed 64 bits
+   * @return       the eight 256-entry tables
+   */
+  public static long[][] getLongTables(final CrcModel model) {
+    final Key key = new Key(model);
+    final long[][] table = longTables.get(key);
+    if (table != null) {
+      return table;
+    }
+    if (longTables.size() >= MAX_ENTRIES) {
+      return buildLongTables(key);
+    }
+    return longTables.computeIfAbsent(key, CrcTables::buildLongTables);
+  }
+
+  // for description see Object
+  @Override
+  public String toString() {
+    return "CrcTables";
+  }
+
+  // private constructor, no instances
+  private CrcTables() {
+  }
+}
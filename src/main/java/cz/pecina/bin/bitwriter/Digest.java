@@ -24,12 +24,15 @@
 package cz.pecina.bin.bitwriter;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.logging.Logger;
 
 /**
- * Message digest calculator.
+ * Message digest calculator.  The digest is only finalized when
+ * the register is read, and the result is cached until the next
+ * update.
  *
  * @author Tomáš Pecina
  * @version 1.0.5
@@ -41,28 +44,29 @@ public class Digest extends Calculator {
 
   // fields
   protected MessageDigest digest;
+  protected BigInteger cachedRegister;
 
   // for description see Calculator
   @Override
   public BigInteger getRegister() {
-    byte[] buffer;
-    try {
-      buffer = ((MessageDigest) (digest.clone())).digest();
-    } catch (final CloneNotSupportedException exception) {
-      buffer = new byte[1];
-    }
-    BigInteger r = BigInteger.ZERO;
-    for (int i = 0; i < buffer.length; i++) {
-      r = r.shiftLeft(8).or(BigInteger.valueOf(buffer[i] & 0xff));
+    if (cachedRegister == null) {
+      byte[] buffer;
+      try {
+        buffer = ((MessageDigest) (digest.clone())).digest();
+      } catch (final CloneNotSupportedException exception) {
+        buffer = new byte[1];
+      }
+      cachedRegister = new BigInteger(1, buffer);
     }
-    log.finer("Getting register: " + Util.bigIntegerToString(r));
-    return r;
+    log.finer("Getting register: " + Util.bigIntegerToString(cachedRegister));
+    return cachedRegister;
   }
 
   // for description see Calculator
   @Override
   public void updateBit(final int b) {
     log.finest("Updating digest with bit: " + (b & 1));
+    cachedRegister = null;
     digest.update((byte) (b & 1));
   }
 
@@ -70,6 +74,7 @@ public class Digest extends Calculator {
   @Override
   public void updateBit(final boolean b) {
     log.finest("Updating Digest with bit: " + b);
+    cachedRegister = null;
     digest.update((byte) (b ? 1 : 0));
   }
 
@@ -77,6 +82,23 @@ public class Digest extends Calculator {
   @Override
   public void update(final byte[] d) {
     log.finest("Updating Digest with an array of length: " + d.length);
+    cachedRegister = null;
+    digest.update(d);
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final byte[] d, final int offset, final int length) {
+    log.finest("Updating Digest with a block of length: " + length);
+    cachedRegister = null;
+    digest.update(d, offset, length);
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final ByteBuffer d) {
+    log.finest("Updating Digest with a buffer of length: " + d.remaining());
+    cachedRegister = null;
     digest.update(d);
   }
 
@@ -84,6 +106,7 @@ public class Digest extends Calculator {
   @Override
   public void update(final int b) {
     log.finest("Updating Digest with: " + b);
+    cachedRegister = null;
     digest.update((byte) b);
   }
 
@@ -91,6 +114,7 @@ public class Digest extends Calculator {
   @Override
   public void update(final BigInteger b) {
     log.finest("Updating Digest with: " + Util.bigIntegerToString(b));
+    cachedRegister = null;
     digest.update((byte) (b.and(Constants.FF).intValue()));
   }
 
@@ -0,0 +1,169 @@
+/* FletcherCheckSum.java
+ *
+ * Copyright (C) 2015-19, Tomas Pecina <tomas@pecina.cz>
+ *
+ * This file is part of cz.pecina.bin, a suite of binary-file
+ * processing applications.
+ *
+ * This application is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The source code is available from <https://github.com/tompecina/bitwriter>.
+ */
+
+package cz.pecina.bin.bitwriter;
+
+import java.math.BigInteger;
+import java.util.logging.Logger;
+
+/**
+ * Fletcher's checksum calculator.  Each value is one data word of
+ * <i>width</i>/2 bits; the low-order half of the register holds
+ * the sum of the words and the high-order half the sum of these sums,
+ * both modulo 2<sup><i>width</i>/2</sup>-1.  Bit-width 16 yields
+ * Fletcher-16 over a byte stream, bit-width 32 Fletcher-32 over
+ * a stream of 16-bit words.
+ *
+ * <p>The sums are accumulated in <code>long</code> variables and
+ * reduced only once per {@link #BLOCK_LENGTH} words and when
+ * the register is read.
+ *
+ * @author Tomáš Pecina
+ * @version 1.0.5
+ * @see CheckSumModel.Algorithm#FLETCHER
+ */
+public class FletcherCheckSum extends CheckSum {
+
+  // static logger
+  private static final Logger log = Logger.getLogger(FletcherCheckSum.class.getName());
+
+  /**
+   * Maximum number of words added to the sums before they are
+   * reduced.
+   */
+  public static final int BLOCK_LENGTH = 4096;
+
+  // fields
+  protected final int halfWidth;
+  protected final long halfMask;
+  protected final long byteMask;
+  protected long sum1;
+  protected long sum2;
+  protected int count;
+
+  // reduces the sums
+  private void reduce() {
+    sum1 %= halfMask;
+    sum2 %= halfMask;
+    count = 0;
+  }
+
+  // adds one word to the sums
+  private void add(final long value) {
+    sum1 += value;
+    sum2 += sum1;
+    if (++count == BLOCK_LENGTH) {
+      reduce();
+    }
+  }
+
+  // for description see Calculator
+  @Override
+  public void setRegister(final BigInteger value) {
+    log.finer("Setting register to: " + Util.bigIntegerToString(value));
+    final long r = value.longValue();
+    sum1 = r & halfMask;
+    sum2 = (r >>> halfWidth) & halfMask;
+    count = 0;
+  }
+
+  // for description see Calculator
+  @Override
+  public BigInteger getRegister() {
+    reduce();
+    final BigInteger r = Util.unsignedToBigInteger((sum2 << halfWidth) | sum1).xor(model.getXorOut());
+    log.finer("Getting register: " + Util.bigIntegerToString(r));
+    return r;
+  }
+
+  // for description see Calculator
+  @Override
+  public void updateBit(final int b) {
+    add(b & 1);
+  }
+
+  // for description see Calculator
+  @Override
+  public void updateBit(final boolean b) {
+    add(b ? 1 : 0);
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final byte[] d, final int offset, final int length) {
+    log.finest("Updating FletcherCheckSum with a block of length: " + length);
+    int i = offset;
+    final int end = offset + length;
+    while (i < end) {
+      final int blockEnd = i + Math.min(end - i, BLOCK_LENGTH - count);
+      count += blockEnd - i;
+      long s1 = sum1;
+      long s2 = sum2;
+      for (; i < blockEnd; i++) {
+        s1 += d[i] & byteMask;
+        s2 += s1;
+      }
+      sum1 = s1;
+      sum2 = s2;
+      if (count == BLOCK_LENGTH) {
+        reduce();
+      }
+    }
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final int b) {
+    add(b & halfMask);
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final BigInteger b) {
+    add(b.longValue() & halfMask);
+  }
+
+  // for description see Object
+  @Override
+  public String toString() {
+    return "FletcherCheckSum";
+  }
+
+  /**
+   * Main constructor.
+   *
+   * @param model model to be used for the calculator, the width must
+   *              be even and must not exceed 64 bits
+   */
+  public FletcherCheckSum(final CheckSumModel model) {
+    super(model);
+    log.fine("Creation of new FletcherCheckSum started");
+
+    halfWidth = model.getWidth() / 2;
+    halfMask = Util.makeLongMask(halfWidth);
+    byteMask = halfMask & 0xff;
+    setRegister(model.getXorIn());
+
+    log.fine("Creation of new FletcherCheckSum completed");
+  }
+}
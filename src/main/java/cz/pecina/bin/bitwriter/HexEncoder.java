@@ -0,0 +1,265 @@
+/* HexEncoder.java
+ *
+ * Copyright (C) 2015-19, Tomas Pecina <tomas@pecina.cz>
+ *
+ * This file is part of cz.pecina.bin, a suite of binary-file
+ * processing applications.
+ *
+ * This application is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The source code is available from <https://github.com/tompecina/bitwriter>.
+ */
+
+package cz.pecina.bin.bitwriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.logging.Logger;
+
+/**
+ * Hexadecimal encoder.
+ *
+ * <p>Bytes written to the encoder are converted to their hexadecimal
+ * representation, separated by spaces, and written to the target
+ * stream line by line.  Optionally, each line is preceded by
+ * the offset of its first byte.
+ *
+ * @author Tomáš Pecina
+ * @version 1.0.5
+ */
+public class HexEncoder extends OutputStream {
+
+  // static logger
+  private static final Logger log = Logger.getLogger(HexEncoder.class.getName());
+
+  /**
+   * Default number of bytes per line.
+   */
+  public static final int DEFAULT_BYTES_PER_LINE = 16;
+
+  /**
+   * Maximum number of bytes per line.
+   */
+  public static final int MAX_BYTES_PER_LINE = 0x10000;
+
+  // constants
+  protected static final byte[] DIGITS = "0123456789abcdef".getBytes();
+  protected static final byte[] TABLE = new byte[0x200];
+  protected static final byte[] NEWLINE = String.format("%n").getBytes();
+  protected static final int MIN_OFFSET_DIGITS = 8;
+
+  static {
+    for (int i = 0; i < 0x100; i++) {
+      TABLE[2 * i] = DIGITS[i >> 4];
+      TABLE[(2 * i) + 1] = DIGITS[i & 0xf];
+    }
+  }
+
+  // checks the number of bytes per line
+  private static void checkBytesPerLine(final int bytesPerLine) {
+    if ((bytesPerLine < 1) || (bytesPerLine > MAX_BYTES_PER_LINE)) {
+      throw new IllegalArgumentException("Illegal line width");
+    }
+  }
+
+  // fields
+  private OutputStream target;
+  private int bytesPerLine;
+  private boolean offsets;
+  private byte[] line;
+  private int length;
+  private int emitted;
+  private int count;
+  private long position;
+
+  /**
+   * Sets the number of bytes per line.  Any pending data is written
+   * to the target stream, terminated by a newline, first.
+   *
+   * @param     bytesPerLine             number of bytes per line, from 1
+   *                                     to {@link #MAX_BYTES_PER_LINE}
+   * @exception IOException              on I/O error
+   * @exception IllegalArgumentException on illegal number of bytes
+   *                                     per line
+   */
+  public void setBytesPerLine(final int bytesPerLine) throws IOException {
+    log.finer("Setting bytesPerLine to: " + bytesPerLine);
+    checkBytesPerLine(bytesPerLine);
+    if (bytesPerLine != this.bytesPerLine) {
+      finish();
+      this.bytesPerLine = bytesPerLine;
+      line = new byte[(Long.SIZE / 4) + 2 + (3 * bytesPerLine) + NEWLINE.length];
+    }
+  }
+
+  /**
+   * Gets the number of bytes per line.
+   *
+   * @return number of bytes per line
+   */
+  public int getBytesPerLine() {
+    log.finer("Getting bytesPerLine: " + bytesPerLine);
+    return bytesPerLine;
+  }
+
+  /**
+   * Sets the offset column switch.
+   *
+   * @param offsets if <code>true</code>, each line is preceded by
+   *                the offset of its first byte
+   */
+  public void setOffsets(final boolean offsets) {
+    log.finer("Setting offsets to: " + offsets);
+    this.offsets = offsets;
+  }
+
+  /**
+   * Gets the offset column switch.
+   *
+   * @return value of the offset column switch
+   */
+  public boolean getOffsets() {
+    log.finer("Getting offsets: " + offsets);
+    return offsets;
+  }
+
+  /**
+   * Gets the number of bytes already encoded.
+   *
+   * @return number of bytes encoded
+   */
+  public long getPosition() {
+    log.finer("Getting position: " + position);
+    return position;
+  }
+
+  // appends the offset column to the line buffer
+  private void appendOffset() {
+    int digits = MIN_OFFSET_DIGITS;
+    while ((digits < (Long.SIZE / 4)) && ((position >>> (4 * digits)) != 0)) {
+      digits++;
+    }
+    for (int shift = 4 * (digits - 1); shift >= 0; shift -= 4) {
+      line[length++] = DIGITS[(int) (position >>> shift) & 0xf];
+    }
+    line[length++] = ':';
+    line[length++] = ' ';
+  }
+
+  // terminates the line and writes it to the target stream
+  private void endLine() throws IOException {
+    System.arraycopy(NEWLINE, 0, line, length, NEWLINE.length);
+    length += NEWLINE.length;
+    target.write(line, emitted, length - emitted);
+    length = emitted = count = 0;
+  }
+
+  // for description see OutputStream
+  @Override
+  public void write(final int b) throws IOException {
+    if (count == 0) {
+      if (offsets) {
+        appendOffset();
+      }
+    } else {
+      line[length++] = ' ';
+    }
+    final int index = 2 * (b & 0xff);
+    line[length++] = TABLE[index];
+    line[length++] = TABLE[index + 1];
+    position++;
+    if ((++count) == bytesPerLine) {
+      endLine();
+    }
+  }
+
+  // for description see OutputStream
+  @Override
+  public void write(final byte[] data, final int offset, final int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      write(data[i]);
+    }
+  }
+
+  /**
+   * Writes the incomplete line, if any, to the target stream, without
+   * terminating it.
+   *
+   * @exception IOException on I/O error
+   */
+  @Override
+  public void flush() throws IOException {
+    log.finer("Flushing HexEncoder");
+    if (length > emitted) {
+      target.write(line, emitted, length - emitted);
+      emitted = length;
+    }
+    target.flush();
+  }
+
+  /**
+   * Terminates the incomplete line, if any, by a newline and writes
+   * it to the target stream.
+   *
+   * @exception IOException on I/O error
+   */
+  public void finish() throws IOException {
+    log.finer("Finishing HexEncoder");
+    if (count != 0) {
+      endLine();
+    }
+  }
+
+  /**
+   * Finishes the output and closes the target stream.
+   *
+   * @exception IOException on I/O error
+   */
+  @Override
+  public void close() throws IOException {
+    log.fine("Closing HexEncoder");
+    finish();
+    target.close();
+  }
+
+  // for description see Object
+  @Override
+  public String toString() {
+    return "HexEncoder";
+  }
+
+  /**
+   * Main constructor.
+   *
+   * @param     target                   target output stream
+   * @param     bytesPerLine             number of bytes per line, from 1
+   *                                     to {@link #MAX_BYTES_PER_LINE}
+   * @param     offsets                  if <code>true</code>, each line
+   *                                     is preceded by the offset of its
+   *                                     first byte
+   * @exception IllegalArgumentException on illegal number of bytes
+   *                                     per line
+   */
+  public HexEncoder(final OutputStream target, final int bytesPerLine, final boolean offsets) {
+    log.fine("HexEncoder creation started");
+
+    checkBytesPerLine(bytesPerLine);
+    this.target = target;
+    this.bytesPerLine = bytesPerLine;
+    this.offsets = offsets;
+    line = new byte[(Long.SIZE / 4) + 2 + (3 * bytesPerLine) + NEWLINE.length];
+
+    log.fine("HexEncoder creation completed");
+  }
+}
@@ -25,11 +25,18 @@ package cz.pecina.bin.bitwriter;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Input aggregate stream.
  *
+ * <p>If the input aggregate width does not exceed 64 bits, values
+ * are processed as <code>long</code>'s, otherwise
+ * <code>BigInteger</code> arithmetic is used.  Unless a variable
+ * is bound to the bit stream, aggregates are passed on as whole
+ * words rather than bit by bit.
+ *
  * @author Tomáš Pecina
  * @version 1.0.5
  */
@@ -44,6 +51,9 @@ public class InAggregateStream implements Stream {
   protected int widthInAggregate;
   protected boolean reflectIn;
   protected BigInteger mask;
+  protected boolean narrow;
+  protected long longMask;
+  protected final long[] block = new long[Constants.BLOCK_SIZE];
 
   /**
    * Sets input aggregate width.
@@ -54,6 +64,8 @@ public class InAggregateStream implements Stream {
     log.finer("Setting widthInAggregate to: " + widthInAggregate);
     this.widthInAggregate = widthInAggregate;
     mask = Util.makeMask(widthInAggregate);
+    narrow = (widthInAggregate <= Long.SIZE);
+    longMask = Util.makeLongMask(widthInAggregate);
     reset();
   }
 
@@ -67,6 +79,38 @@ public class InAggregateStream implements Stream {
     return widthInAggregate;
   }
 
+  /**
+   * Checks whether the stream is processed using <code>long</code>
+   * arithmetic.
+   *
+   * @return <code>true</code> if the input aggregate width does not
+   *         exceed 64 bits
+   */
+  public boolean isNarrow() {
+    return narrow;
+  }
+
+  /**
+   * Checks whether the chain of streams starting with this stream
+   * passes bytes on unchanged and without any side effects.
+   *
+   * @return <code>true</code> if the chain is an identity transform
+   */
+  public boolean isTransparent() {
+    return (widthInAggregate == 8) && !reflectIn && !processor.hasListeners(Variable.Type.AGGREGATE_STREAM_IN)
+        && bitStream.isTransparent();
+  }
+
+  /**
+   * Checks whether the chain of streams starting with this stream
+   * holds no buffered data.
+   *
+   * @return <code>true</code> if all buffers are empty
+   */
+  public boolean isEmpty() {
+    return bitStream.isEmpty();
+  }
+
   /**
    * Sets input reflection.
    *
@@ -94,6 +138,8 @@ public class InAggregateStream implements Stream {
     log.fine("Setting defaults on InAggregateStream");
     widthInAggregate = 8;
     mask = Constants.FF;
+    narrow = true;
+    longMask = 0xffL;
     reflectIn = false;
     reset();
   }
@@ -108,17 +154,123 @@ public class InAggregateStream implements Stream {
   @Override
   public void write(final BigInteger arg) throws IOException {
     log.finest("Writing BigInteger to InAggregateStream: " + Util.bigIntegerToString(arg));
+    if (narrow) {
+      write(arg.longValue());
+      return;
+    }
     final BigInteger value = arg.and(mask);
     try {
       processor.trigger(Variable.Type.AGGREGATE_STREAM_IN, value);
     } catch (final ProcessorException exception) {
       throw new IOException(exception.getMessage());
     }
-    final int offset = (reflectIn ? 0 : (widthInAggregate - 1));
-    final int step = (reflectIn ? 1 : -1);
-    for (int i = offset; (reflectIn ? (i < widthInAggregate) : (i >= 0)); i += step) {
-      bitStream.write(value.testBit(i) ? BigInteger.ONE : BigInteger.ZERO);
+    if (processor.hasListeners(Variable.Type.BITSTREAM)) {
+      final int offset = (reflectIn ? 0 : (widthInAggregate - 1));
+      final int step = (reflectIn ? 1 : -1);
+      for (int i = offset; (reflectIn ? (i < widthInAggregate) : (i >= 0)); i += step) {
+        bitStream.write(value.testBit(i) ? BigInteger.ONE : BigInteger.ZERO);
+      }
+    } else if (reflectIn) {
+      for (int i = 0; i < widthInAggregate; i += Long.SIZE) {
+        final int n = Math.min(Long.SIZE, widthInAggregate - i);
+        final long chunk = value.shiftRight(i).longValue() & Util.makeLongMask(n);
+        bitStream.writeBits(Long.reverse(chunk) >>> (Long.SIZE - n), n);
+      }
+    } else {
+      for (int i = widthInAggregate; i > 0; ) {
+        final int n = Math.min(Long.SIZE, i);
+        i -= n;
+        bitStream.writeBits(value.shiftRight(i).longValue() & Util.makeLongMask(n), n);
+      }
+    }
+  }
+
+  // for description see Stream
+  @Override
+  public void write(final long arg) throws IOException {
+    if (!narrow) {
+      write(Util.unsignedToBigInteger(arg));
+      return;
+    }
+    if (log.isLoggable(Level.FINEST)) {
+      log.finest("Writing long to InAggregateStream: " + Long.toUnsignedString(arg));
+    }
+    final long value = arg & longMask;
+    try {
+      processor.trigger(Variable.Type.AGGREGATE_STREAM_IN, value);
+    } catch (final ProcessorException exception) {
+      throw new IOException(exception.getMessage());
+    }
+    if (processor.hasListeners(Variable.Type.BITSTREAM)) {
+      if (reflectIn) {
+        for (int i = 0; i < widthInAggregate; i++) {
+          bitStream.write((value >>> i) & 1L);
+        }
+      } else {
+        for (int i = widthInAggregate - 1; i >= 0; i--) {
+          bitStream.write((value >>> i) & 1L);
+        }
+      }
+    } else if (reflectIn) {
+      bitStream.writeBits(Long.reverse(value) >>> (Long.SIZE - widthInAggregate), widthInAggregate);
+    } else {
+      bitStream.writeBits(value, widthInAggregate);
+    }
+  }
+
+  // for description see Stream
+  @Override
+  public void write(final byte[] data, final int offset, final int length) throws IOException {
+    log.finest("Writing block of " + length + " bytes to InAggregateStream");
+    if (!narrow || processor.hasListeners(Variable.Type.AGGREGATE_STREAM_IN)
+        || processor.hasListeners(Variable.Type.BITSTREAM)) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        write(data[i] & 0xffL);
+      }
+    } else if ((widthInAggregate == 8) && !reflectIn) {
+      bitStream.writeBits(data, offset, length);
+    } else {
+      for (int i = offset, end = offset + length; i < end; i += block.length) {
+        final int n = Math.min(block.length, end - i);
+        for (int j = 0; j < n; j++) {
+          block[j] = data[i + j] & 0xffL;
+        }
+        writeBlock(n);
+      }
+    }
+  }
+
+  // for description see Stream
+  @Override
+  public void write(final long[] data, final int offset, final int length) throws IOException {
+    log.finest("Writing block of " + length + " longs to InAggregateStream");
+    if (!narrow || processor.hasListeners(Variable.Type.AGGREGATE_STREAM_IN)
+        || processor.hasListeners(Variable.Type.BITSTREAM)) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        write(data[i]);
+      }
+    } else {
+      for (int i = offset, end = offset + length; i < end; i += block.length) {
+        final int n = Math.min(block.length, end - i);
+        System.arraycopy(data, i, block, 0, n);
+        writeBlock(n);
+      }
+    }
+  }
+
+  // masks and, if required, reflects the values in the block and passes them on
+  private void writeBlock(final int length) throws IOException {
+    if (reflectIn) {
+      final int shift = Long.SIZE - widthInAggregate;
+      for (int i = 0; i < length; i++) {
+        block[i] = Long.reverse(block[i] & longMask) >>> shift;
+      }
+    } else {
+      for (int i = 0; i < length; i++) {
+        block[i] &= longMask;
+      }
     }
+    bitStream.writeBits(block, 0, length, widthInAggregate);
   }
 
   // for description see Stream
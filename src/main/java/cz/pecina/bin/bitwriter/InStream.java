@@ -25,11 +25,16 @@ package cz.pecina.bin.bitwriter;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Input stream.
  *
+ * <p>If the input aggregate width does not exceed 64 bits, values
+ * are assembled in a <code>long</code> register, otherwise
+ * <code>BigInteger</code> arithmetic is used.
+ *
  * @author Tomáš Pecina
  * @version 1.0.5
  */
@@ -48,6 +53,13 @@ public class InStream implements Stream {
   protected int offset;
   protected int step;
   protected BigInteger mask;
+  protected boolean narrow;
+  protected long longBuffer;
+  protected long longMask;
+  protected int count;
+  protected final long[] block = new long[Constants.BLOCK_SIZE];
+  protected StreamPlan plan;
+  protected final byte[] planned = new byte[Constants.BLOCK_SIZE];
 
   /**
    * Sets input width.
@@ -65,6 +77,7 @@ public class InStream implements Stream {
     }
     this.widthIn = widthIn;
     mask = Util.makeMask(widthIn);
+    longMask = Util.makeLongMask(widthIn);
     reset();
   }
 
@@ -99,13 +112,69 @@ public class InStream implements Stream {
     return endiannessIn;
   }
 
+  /**
+   * Checks whether the chain of streams starting with this stream
+   * passes bytes on unchanged and without any side effects, i.e.,
+   * whether they may be copied directly to the output.
+   *
+   * @return <code>true</code> if the chain is an identity transform
+   */
+  public boolean isTransparent() {
+    return (widthIn == 8) && (count == 1) && (counter == count) && !processor.hasListeners(Variable.Type.STREAM_IN)
+        && inAggregateStream.isTransparent();
+  }
+
+  /**
+   * Checks whether the chain of streams starting with this stream
+   * holds no buffered data.
+   *
+   * @return <code>true</code> if all buffers are empty
+   */
+  public boolean isEmpty() {
+    return isAggregateEmpty() && inAggregateStream.isEmpty();
+  }
+
+  /**
+   * Checks whether this stream holds no values of an incomplete input
+   * aggregate.
+   *
+   * @return <code>true</code> if the aggregate buffer is empty
+   */
+  public boolean isAggregateEmpty() {
+    return counter == count;
+  }
+
+  /**
+   * Sets the compiled plan of the current stream configuration.
+   *
+   * @param plan the plan or <code>null</code> if none
+   * @see   StreamPlan
+   */
+  public void setPlan(final StreamPlan plan) {
+    log.finer("Setting stream plan: " + plan);
+    this.plan = plan;
+  }
+
+  /**
+   * Gets the compiled plan of the current stream configuration.
+   *
+   * @return the plan or <code>null</code> if none
+   * @see    StreamPlan
+   */
+  public StreamPlan getPlan() {
+    log.finer("Getting stream plan: " + plan);
+    return plan;
+  }
+
   // for description see Stream
   @Override
   public void setDefaults() {
     log.fine("Setting defaults on InStream");
     widthIn = 8;
     mask = Constants.FF;
+    longMask = 0xffL;
     endiannessIn = Endianness.BIG;
+    plan = null;
     reset();
   }
 
@@ -113,21 +182,28 @@ public class InStream implements Stream {
   @Override
   public void reset() {
     log.fine("Resetting InStream");
+    narrow = inAggregateStream.isNarrow();
+    count = inAggregateStream.getWidthInAggregate() / widthIn;
+    step = (endiannessIn == Endianness.BIG) ? -widthIn : widthIn;
+    restart();
+  }
+
+  // empties the buffer
+  private void restart() {
     buffer = BigInteger.ZERO;
-    counter = inAggregateStream.getWidthInAggregate() / widthIn;
-    if (endiannessIn == Endianness.BIG) {
-      offset = (counter - 1) * widthIn;
-      step = -widthIn;
-    } else {
-      offset = 0;
-      step = widthIn;
-    }
+    longBuffer = 0L;
+    counter = count;
+    offset = (endiannessIn == Endianness.BIG) ? ((count - 1) * widthIn) : 0;
   }
 
   // for description see Stream
   @Override
   public void write(final BigInteger arg) throws IOException {
     log.finest("Writing BigInteger to InStream: " + Util.bigIntegerToString(arg));
+    if (narrow) {
+      write(arg.longValue());
+      return;
+    }
     final BigInteger value = arg.and(mask);
     try {
       processor.trigger(Variable.Type.STREAM_IN, value);
@@ -140,19 +216,160 @@ public class InStream implements Stream {
     offset += step;
     if ((--counter) == 0) {
       inAggregateStream.write(buffer);
-      reset();
+      restart();
     }
   }
 
+  // for description see Stream
+  @Override
+  public void write(final long arg) throws IOException {
+    if (!narrow) {
+      write(Util.unsignedToBigInteger(arg));
+      return;
+    }
+    if (log.isLoggable(Level.FINEST)) {
+      log.finest("Writing long to InStream: " + Long.toUnsignedString(arg));
+    }
+    final long value = arg & longMask;
+    try {
+      processor.trigger(Variable.Type.STREAM_IN, value);
+    } catch (final ProcessorException exception) {
+      throw new IOException(exception.getMessage());
+    }
+    if (append(value)) {
+      inAggregateStream.write(longBuffer);
+      restart();
+    }
+  }
+
+  // for description see Stream
+  @Override
+  public void write(final byte[] data, final int offset, final int length) throws IOException {
+    log.finest("Writing block of " + length + " bytes to InStream");
+    if ((plan != null)
+        && (!processor.hasListeners(Variable.Type.STREAM_IN) || !processor.getTriggerRegistry().hasExpressions())
+        && !processor.hasListeners(Variable.Type.AGGREGATE_STREAM_IN) && !processor.hasListeners(Variable.Type.BITSTREAM)
+        && !processor.hasListeners(Variable.Type.AGGREGATE_STREAM_OUT) && !processor.hasListeners(Variable.Type.STREAM_OUT)) {
+      writePlanned(data, offset, length);
+    } else {
+      writeBytes(data, offset, length);
+    }
+  }
+
+  // writes a block of bytes using the compiled plan, whole periods only; the streams are only
+  // used to reach a period boundary and for the remainder
+  private void writePlanned(final byte[] data, final int offset, final int length) throws IOException {
+    final int period = plan.getPeriod();
+    final int end = offset + length;
+    int i = offset;
+    while ((i < end) && !isEmpty()) {
+      writeBytes(data, i++, 1);
+    }
+    final ControlledOutputStream controlledOutputStream = processor.getControlledOutputStream();
+    while ((end - i) >= period) {
+      final int n = (Math.min(end - i, planned.length) / period) * period;
+      if (processor.hasListeners(Variable.Type.STREAM_IN)) {
+        processor.trigger(Variable.Type.STREAM_IN, data, i, n);
+      }
+      plan.apply(data, i, n, planned);
+      controlledOutputStream.write(planned, 0, n);
+      i += n;
+    }
+    if (i < end) {
+      writeBytes(data, i, end - i);
+    }
+  }
+
+  // writes a block of bytes through the streams
+  private void writeBytes(final byte[] data, final int offset, final int length) throws IOException {
+    if (!narrow || (processor.hasListeners(Variable.Type.STREAM_IN)
+        && ((widthIn != 8) || !processor.trigger(Variable.Type.STREAM_IN, data, offset, length)))) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        write(data[i] & 0xffL);
+      }
+    } else if ((count == 1) && (widthIn >= 8)) {
+      inAggregateStream.write(data, offset, length);
+    } else {
+      int n = 0;
+      for (int i = offset, end = offset + length; i < end; i++) {
+        if (append(data[i] & 0xffL & longMask)) {
+          block[n++] = longBuffer;
+          restart();
+          if (n == block.length) {
+            inAggregateStream.write(block, 0, n);
+            n = 0;
+          }
+        }
+      }
+      if (n > 0) {
+        inAggregateStream.write(block, 0, n);
+      }
+      if (length > 0) {
+        keepValue(data[offset + length - 1] & 0xffL & longMask);
+      }
+    }
+  }
+
+  // for description see Stream
+  @Override
+  public void write(final long[] data, final int offset, final int length) throws IOException {
+    log.finest("Writing block of " + length + " longs to InStream");
+    if (!narrow || processor.hasListeners(Variable.Type.STREAM_IN)) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        write(data[i]);
+      }
+    } else {
+      int n = 0;
+      for (int i = offset, end = offset + length; i < end; i++) {
+        if (append(data[i] & longMask)) {
+          block[n++] = longBuffer;
+          restart();
+          if (n == block.length) {
+            inAggregateStream.write(block, 0, n);
+            n = 0;
+          }
+        }
+      }
+      if (n > 0) {
+        inAggregateStream.write(block, 0, n);
+      }
+      if (length > 0) {
+        keepValue(data[offset + length - 1] & longMask);
+      }
+    }
+  }
+
+  // if the last value of a block stays in the buffer, makes it the value of 'val',
+  // as the trigger would have done
+  private void keepValue(final long value) {
+    if (counter != count) {
+      processor.getScriptProcessor().putUnsignedValue(value);
+    }
+  }
+
+  // appends a masked value to the long buffer, returns true if the aggregate is complete
+  private boolean append(final long value) {
+    longBuffer |= value << offset;
+    offset += step;
+    return (--counter) == 0;
+  }
+
   // for description see Stream
   @Override
   public void flush() throws IOException {
     log.finer("Flushing InStream");
-    if (counter != (inAggregateStream.getWidthInAggregate() / widthIn)) {
-      if (endiannessIn == Endianness.BIG) {
-        buffer = buffer.shiftRight(counter * widthIn);
+    if (counter != count) {
+      if (narrow) {
+        if (endiannessIn == Endianness.BIG) {
+          longBuffer >>>= counter * widthIn;
+        }
+        inAggregateStream.write(longBuffer);
+      } else {
+        if (endiannessIn == Endianness.BIG) {
+          buffer = buffer.shiftRight(counter * widthIn);
+        }
+        inAggregateStream.write(buffer);
       }
-      inAggregateStream.write(buffer);
       reset();
     }
     inAggregateStream.flush();
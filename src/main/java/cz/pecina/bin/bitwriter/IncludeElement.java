@@ -23,10 +23,10 @@
 
 package cz.pecina.bin.bitwriter;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.math.BigInteger;
+import java.nio.channels.FileChannel;
 import java.util.logging.Logger;
 import org.w3c.dom.Element;
 
@@ -52,17 +52,34 @@ public class IncludeElement extends ParsedElement {
     if ((location == null) || location.trim().isEmpty()) {
       throw new ProcessorException("Missing location in the <include> element");
     }
+    final long threshold = processor.getParameters().getParallelThreshold();
     for (int iter = 0; iter < count; iter++) {
-      final InputStream fileInputStream = new FileInputStream(location);
-      if (offset != 0) {
-        fileInputStream.skip(offset);
-      }
-      for (long i = 0; i < length; i++) {
-        final int b = fileInputStream.read();
-        if (b == -1) {
-          break;
+      final FileInputStream fileInputStream = new FileInputStream(location);
+      final boolean isFile = new File(location).isFile();
+      final long available = isFile ? Math.max(0L, Math.min(length, fileInputStream.getChannel().size() - offset)) : 0L;
+      if ((threshold > 0) && (available >= threshold)
+          && ParallelCrc.write(processor, fileInputStream.getChannel(), offset, available)) {
+        log.finer("File processed in parallel");
+      } else if (processor.getInStream().isTransparent() && isFile) {
+        log.finer("Copying the file directly to the output");
+        final FileChannel channel = fileInputStream.getChannel();
+        final long size = channel.size();
+        if (offset < size) {
+          processor.getControlledOutputStream().transferFrom(channel, offset, Math.min(length, size - offset));
+        }
+      } else {
+        if (offset != 0) {
+          fileInputStream.skip(offset);
+        }
+        final byte[] block = new byte[Constants.BLOCK_SIZE];
+        for (long remaining = length; remaining > 0; ) {
+          final int n = fileInputStream.read(block, 0, (int) Math.min(remaining, block.length));
+          if (n == -1) {
+            break;
+          }
+          write(block, 0, n);
+          remaining -= n;
         }
-        write(BigInteger.valueOf(b));
       }
       fileInputStream.close();
     }
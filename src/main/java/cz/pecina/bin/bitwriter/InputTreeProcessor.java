@@ -30,6 +30,7 @@ import java.io.PrintStream;
 import java.math.BigInteger;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.w3c.dom.Element;
 
@@ -58,6 +59,7 @@ public class InputTreeProcessor implements AutoCloseable {
   protected ControlledOutputStream controlledOutputStream;
   protected final Map<String, Variable> variables = new TreeMap<>();
   protected Connector connector;
+  protected final TriggerRegistry triggerRegistry = new TriggerRegistry();
 
   /**
    * Gets the parameters object.
@@ -180,6 +182,28 @@ public class InputTreeProcessor implements AutoCloseable {
     return variables;
   }
 
+  /**
+   * Gets the trigger registry.
+   *
+   * @return the trigger registry
+   */
+  public TriggerRegistry getTriggerRegistry() {
+    log.finer("Getting trigger registry");
+    return triggerRegistry;
+  }
+
+  /**
+   * Checks whether any variable is bound to a stream, i.e., whether
+   * write's to the stream have to activate the trigger.
+   *
+   * @param  type type of the stream
+   * @return      <code>true</code> if there is a calculator or
+   *              an expression bound to the stream
+   */
+  public boolean hasListeners(final Variable.Type type) {
+    return triggerRegistry.hasListeners(type);
+  }
+
   /**
    * Trigger method called on write's to the streams.
    *
@@ -189,51 +213,79 @@ public class InputTreeProcessor implements AutoCloseable {
    * @exception ProcessorException on expression evaluation error
    */
   public void trigger(final Variable.Type type, final BigInteger value) throws ProcessorException {
-    log.finer("Value written to " + type + ": " + Util.bigIntegerToString(value) + " (" + value.getClass() + ")");
+    if (log.isLoggable(Level.FINER)) {
+      log.finer("Value written to " + type + ": " + Util.bigIntegerToString(value) + " (" + value.getClass() + ")");
+    }
     scriptProcessor.putValue(value);
-    for (Variable variable : variables.values()) {
-      final Calculator calculator = variable.getCalculator();
-      if ((calculator != null) && (variable.getType() == type)) {
+    for (TriggerRegistry.Listener listener : triggerRegistry.getListeners(type)) {
+      final Variable variable = listener.getVariable();
+      final Calculator calculator = listener.getCalculator();
+      if (calculator != null) {
         log.finest("Updating calculator for: " + variable.getName());
         if (type == Variable.Type.BITSTREAM) {
           calculator.updateBit(value.testBit(0));
         } else {
           calculator.update(value);
         }
-        variable.setValue(calculator.getRegister());
-        log.finest("Variable updated from calculator, new value: " + Util.bigIntegerToString(variable.getValue()));
-      }
-      String expression;
-      switch (type) {
-        case STREAM_IN:
-          expression = variable.getOnStreamIn();
-          break;
-        case AGGREGATE_STREAM_IN:
-          expression = variable.getOnAggregateStreamIn();
-          break;
-        case BITSTREAM:
-          expression = variable.getOnBitStream();
-          break;
-        case AGGREGATE_STREAM_OUT:
-          expression = variable.getOnAggregateStreamOut();
-          break;
-        case STREAM_OUT:
-          expression = variable.getOnStreamOut();
-          break;
-        case OUTPUT_STREAM:
-        default:
-          expression = variable.getOnOutputStream();
-          break;
+        variable.invalidate();
       }
+      final String expression = listener.getExpression();
       if (expression != null) {
-        final String trimmedExpression = expression.trim();
-        if (!trimmedExpression.isEmpty()) {
-          variable.setValue(scriptProcessor.evalAsBigInteger(trimmedExpression));
-        }
+        variable.setValue(scriptProcessor.evalAsBigInteger(expression));
       }
     }
   }
 
+  /**
+   * Trigger method called on write's to the streams, <code>long</code>
+   * version.
+   *
+   * @param     type               type of the variable that activated
+   *                               the trigger
+   * @param     value              the value written to the stream,
+   *                               interpreted as an unsigned 64-bit
+   *                               quantity
+   * @exception ProcessorException on expression evaluation error
+   */
+  public void trigger(final Variable.Type type, final long value) throws ProcessorException {
+    if (triggerRegistry.hasListeners(type)) {
+      trigger(type, Util.unsignedToBigInteger(value));
+    } else {
+      scriptProcessor.putUnsignedValue(value);
+    }
+  }
+
+  /**
+   * Trigger method called on block write's of bytes to the streams.
+   * If no expressions are bound to any of the streams, the calculators
+   * bound to the stream are updated with the whole block at once and
+   * the value of the last byte is made the value of <code>val</code>.
+   * Otherwise, nothing happens and the bytes have to be passed to
+   * the trigger one by one, so that the expressions are evaluated in
+   * the correct order.
+   *
+   * @param  type   type of the stream
+   * @param  data   array containing the bytes written to the stream,
+   *                interpreted as unsigned values
+   * @param  offset offset of the first byte in the array
+   * @param  length number of bytes
+   * @return        <code>true</code> if the block has been processed
+   */
+  public boolean trigger(final Variable.Type type, final byte[] data, final int offset, final int length) {
+    if (triggerRegistry.hasExpressions()) {
+      return false;
+    }
+    log.finer("Block of " + length + " bytes written to " + type);
+    for (TriggerRegistry.Listener listener : triggerRegistry.getListeners(type)) {
+      listener.getCalculator().update(data, offset, length);
+      listener.getVariable().invalidate();
+    }
+    if (length > 0) {
+      scriptProcessor.putUnsignedValue(data[offset + length - 1] & 0xffL);
+    }
+    return true;
+  }
+
   // for description see AutoCloseable
   @Override
   public void close() throws IOException {
@@ -259,6 +311,9 @@ public class InputTreeProcessor implements AutoCloseable {
     this.presetCrcModels = presetCrcModels;
     this.stderr = stderr;
     controlledOutputStream.setHexMode(parameters.isHexMode());
+    controlledOutputStream.setHexBytesPerLine(parameters.getHexBytesPerLine());
+    controlledOutputStream.setHexOffsets(parameters.getHexOffsets());
+    controlledOutputStream.setBufferSize(parameters.getBufferSize());
 
     scriptProcessor = new ScriptProcessor(this);
 
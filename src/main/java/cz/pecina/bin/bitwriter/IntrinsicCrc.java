@@ -0,0 +1,191 @@
+/* IntrinsicCrc.java
+ *
+ * Copyright (C) 2015-19, Tomas Pecina <tomas@pecina.cz>
+ *
+ * This file is part of cz.pecina.bin, a suite of binary-file
+ * processing applications.
+ *
+ * This application is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The source code is available from <https://github.com/tompecina/bitwriter>.
+ */
+
+package cz.pecina.bin.bitwriter;
+
+import java.math.BigInteger;
+import java.util.logging.Logger;
+import java.util.zip.Checksum;
+
+/**
+ * CRC calculator for the CRC-32 and CRC-32C models, delegating to
+ * the checksum classes of the Java runtime, which are usually
+ * implemented as hardware-accelerated intrinsics.
+ *
+ * <p>The runtime classes can only start from the initial value of
+ * the register.  After the register has been set to any other value
+ * or a single bit has been written, the calculator falls back to
+ * the table-driven algorithm, until the register is set to
+ * the initial value again.  Meanwhile, large blocks are still
+ * processed by the runtime class, on their own, and their CRC values
+ * are then appended to the register.  If the model is not supported by
+ * the runtime, the table-driven algorithm is used throughout.
+ *
+ * @author Tomáš Pecina
+ * @version 1.0.5
+ * @see Crc
+ */
+public class IntrinsicCrc extends LongCrc {
+
+  // static logger
+  private static final Logger log = Logger.getLogger(IntrinsicCrc.class.getName());
+
+  // constants
+  private static final BigInteger XOR = BigInteger.valueOf(0xffffffffL);
+  private static final BigInteger CRC32_POLYNOMIAL = BigInteger.valueOf(0x04c11db7L);
+  private static final BigInteger CRC32C_POLYNOMIAL = BigInteger.valueOf(0x1edc6f41L);
+
+  // minimum length of a block worth processing by the runtime class after a fall-back
+  private static final int APPEND_THRESHOLD = 0x1000;
+
+  // fields
+  protected final Checksum checksum;
+  protected final long initialRegister;
+  protected boolean intrinsic;
+
+  // creates the checksum object of the runtime class, or returns null if the model is not supported
+  private static Checksum createChecksum(final CrcModel model) {
+    if ((model.getPolynomial().getWidth() != 32) || !model.getReflectIn() || !model.getReflectOut()
+        || !model.getXorIn().and(XOR).equals(XOR) || !model.getXorOut().equals(XOR)) {
+      return null;
+    }
+    final BigInteger polynomial = model.getPolynomial().getPolynomial();
+    if (polynomial.equals(CRC32_POLYNOMIAL)) {
+      return new java.util.zip.CRC32();
+    }
+    if (polynomial.equals(CRC32C_POLYNOMIAL)) {
+      // CRC32C is only available since Java 9
+      try {
+        return (Checksum) Class.forName("java.util.zip.CRC32C").getDeclaredConstructor().newInstance();
+      } catch (final ReflectiveOperationException | ClassCastException exception) {
+        log.fine("CRC32C not available");
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Checks whether the model can be calculated by the runtime.
+   *
+   * @param  model the CRC model
+   * @return       <code>true</code> if the model is supported
+   */
+  public static boolean isSupported(final CrcModel model) {
+    return createChecksum(model) != null;
+  }
+
+  // passes the value calculated by the runtime to the table-driven algorithm
+  private void fallBack() {
+    if (intrinsic) {
+      log.finer("Falling back to table-driven algorithm");
+      longRegister = (checksum.getValue() ^ XOR.longValue()) & longMask;
+      intrinsic = false;
+    }
+  }
+
+  // for description see Calculator
+  @Override
+  public void setRegister(final BigInteger value) {
+    super.setRegister(value);
+    intrinsic = (checksum != null) && (longRegister == initialRegister);
+    if (intrinsic) {
+      checksum.reset();
+    }
+  }
+
+  // for description see Crc
+  @Override
+  protected BigInteger getCanonicalRegister() {
+    fallBack();
+    return super.getCanonicalRegister();
+  }
+
+  // for description see Crc
+  @Override
+  protected void setCanonicalRegister(final BigInteger value) {
+    fallBack();
+    super.setCanonicalRegister(value);
+  }
+
+  // for description see Calculator
+  @Override
+  public BigInteger getRegister() {
+    if (intrinsic) {
+      final BigInteger r = BigInteger.valueOf(checksum.getValue());
+      log.finer("CRC value requested, returning: " + Util.bigIntegerToString(r));
+      return r;
+    }
+    return super.getRegister();
+  }
+
+  // for description see Calculator
+  @Override
+  public void updateBit(final int b) {
+    fallBack();
+    super.updateBit(b);
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final byte[] d, final int offset, final int length) {
+    if (intrinsic) {
+      checksum.update(d, offset, length);
+    } else if ((checksum != null) && (length >= APPEND_THRESHOLD)) {
+      checksum.reset();
+      checksum.update(d, offset, length);
+      append(BigInteger.valueOf(checksum.getValue()), length);
+    } else {
+      super.update(d, offset, length);
+    }
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final int b) {
+    if (intrinsic) {
+      checksum.update(b);
+    } else {
+      super.update(b);
+    }
+  }
+
+  // for description see Object
+  @Override
+  public String toString() {
+    return "IntrinsicCrc";
+  }
+
+  /**
+   * Main constructor.
+   *
+   * @param model model to be used for the calculator
+   */
+  public IntrinsicCrc(final CrcModel model) {
+    super(model);
+    log.fine("Intrinsic CRC object creation started");
+    checksum = createChecksum(model);
+    intrinsic = (checksum != null);
+    initialRegister = longRegister;
+    log.fine("Intrinsic CRC object creation completed");
+  }
+}
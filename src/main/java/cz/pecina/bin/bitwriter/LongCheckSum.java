@@ -0,0 +1,159 @@
+/* LongCheckSum.java
+ *
+ * Copyright (C) 2015-19, Tomas Pecina <tomas@pecina.cz>
+ *
+ * This file is part of cz.pecina.bin, a suite of binary-file
+ * processing applications.
+ *
+ * This application is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The source code is available from <https://github.com/tompecina/bitwriter>.
+ */
+
+package cz.pecina.bin.bitwriter;
+
+import java.math.BigInteger;
+import java.util.logging.Logger;
+
+/**
+ * Checksum calculator using a <code>long</code> accumulator.
+ *
+ * <p>The values are added to the accumulator without any masking,
+ * the result is only reduced when the register is read.  For
+ * modular checksums, this is correct for widths of up to 64 bits, as
+ * the accumulator overflows modulo 2<sup>64</sup>.  For
+ * ones'-complement checksums, the carries are folded back into
+ * the low-order bits, which gives the same result as the end-around
+ * carry after every addition; the accumulator is folded in advance
+ * whenever it could overflow.
+ *
+ * @author Tomáš Pecina
+ * @version 1.0.5
+ * @see CheckSum
+ */
+public class LongCheckSum extends CheckSum {
+
+  // static logger
+  private static final Logger log = Logger.getLogger(LongCheckSum.class.getName());
+
+  /**
+   * Maximum width of modular checksums.
+   */
+  public static final int MAX_MODULAR_WIDTH = Long.SIZE;
+
+  /**
+   * Maximum width of ones'-complement checksums.
+   */
+  public static final int MAX_ONES_COMPLEMENT_WIDTH = Long.SIZE - 2;
+
+  // fields
+  protected final int width;
+  protected final boolean onesComplement;
+  protected final long longMask;
+  protected final long byteMask;
+  protected long accumulator;
+
+  // folds the carries into the low-order bits
+  private long fold(final long value) {
+    long r = value;
+    while ((r >>> width) != 0) {
+      r = (r & longMask) + (r >>> width);
+    }
+    return r;
+  }
+
+  // adds a value to the accumulator
+  private void add(final long value) {
+    accumulator += value;
+    if (onesComplement && ((accumulator >>> (Long.SIZE - 2)) != 0)) {
+      accumulator = fold(accumulator);
+    }
+  }
+
+  // for description see Calculator
+  @Override
+  public void setRegister(final BigInteger value) {
+    log.finer("Setting register to: " + Util.bigIntegerToString(value));
+    accumulator = value.longValue() & longMask;
+  }
+
+  // for description see Calculator
+  @Override
+  public BigInteger getRegister() {
+    final long n = onesComplement ? fold(accumulator) : (accumulator & longMask);
+    final BigInteger r = Util.unsignedToBigInteger(n).xor(model.getXorOut());
+    log.finer("Getting register: " + Util.bigIntegerToString(r));
+    return r;
+  }
+
+  // for description see Calculator
+  @Override
+  public void updateBit(final int b) {
+    add(b & 1);
+  }
+
+  // for description see Calculator
+  @Override
+  public void updateBit(final boolean b) {
+    add(b ? 1 : 0);
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final byte[] d, final int offset, final int length) {
+    long sum = 0;
+    for (int i = offset, end = offset + length; i < end; i++) {
+      sum += d[i] & byteMask;
+    }
+    add(sum);
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final int b) {
+    add(b & longMask);
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final BigInteger b) {
+    add(b.longValue() & longMask);
+  }
+
+  // for description see Object
+  @Override
+  public String toString() {
+    return "LongCheckSum";
+  }
+
+  /**
+   * Main constructor.
+   *
+   * @param model model to be used for the calculator, the width must
+   *              not exceed {@link #MAX_MODULAR_WIDTH} or
+   *              {@link #MAX_ONES_COMPLEMENT_WIDTH}, respectively
+   */
+  public LongCheckSum(final CheckSumModel model) {
+    super(model);
+    log.fine("Creation of new LongCheckSum started");
+
+    width = model.getWidth();
+    onesComplement = (model.getAlgorithm() == CheckSumModel.Algorithm.ONES_COMPLEMENT);
+    longMask = Util.makeLongMask(width);
+    byteMask = longMask & 0xff;
+    accumulator = model.getXorIn().longValue() & longMask;
+
+    log.fine("Creation of new LongCheckSum completed");
+  }
+}
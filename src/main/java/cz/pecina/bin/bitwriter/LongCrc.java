@@ -0,0 +1,247 @@
+/* LongCrc.java
+ *
+ * Copyright (C) 2015-19, Tomas Pecina <tomas@pecina.cz>
+ *
+ * This file is part of cz.pecina.bin, a suite of binary-file
+ * processing applications.
+ *
+ * This application is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The source code is available from <https://github.com/tompecina/bitwriter>.
+ */
+
+package cz.pecina.bin.bitwriter;
+
+import java.math.BigInteger;
+import java.util.logging.Logger;
+
+/**
+ * CRC calculator for polynomials of up to 64 bits, using
+ * <code>long</code> arithmetic.
+ *
+ * <p>For models with input reflection, the register is kept reflected,
+ * right-aligned, so that bytes are processed LSB first without any
+ * reflection of the register.  For the other models, the register is
+ * kept left-aligned, so that the same code serves all widths.
+ *
+ * <p>Blocks of bytes are processed eight bytes at a time, using
+ * the slicing-by-8 algorithm: the eight tables give the contribution
+ * of a byte followed by zero to seven zero bytes.  The tables are
+ * shared with other calculators, see {@link CrcTables}.
+ *
+ * @author Tomáš Pecina
+ * @version 1.0.5
+ * @see Crc
+ */
+public class LongCrc extends Crc {
+
+  // static logger
+  private static final Logger log = Logger.getLogger(LongCrc.class.getName());
+
+  // fields
+  protected final int width;
+  protected final boolean reflected;
+  protected final long longMask;
+  protected final long longPolynomial;
+  protected final long longXorIn;
+  protected final long generator;
+  protected final long[][] longTables;
+  protected long longRegister;
+
+  // converts the register to its canonical (unreflected, right-aligned) form
+  private long canonical() {
+    return reflected ? (Long.reverse(longRegister) >>> (Long.SIZE - width)) : (longRegister >>> (Long.SIZE - width));
+  }
+
+  // sets the register from its canonical form
+  private void setCanonical(final long value) {
+    longRegister = reflected ? (Long.reverse(value) >>> (Long.SIZE - width)) : (value << (Long.SIZE - width));
+  }
+
+  // for description see Calculator
+  @Override
+  public void setRegister(final BigInteger value) {
+    log.finer("Setting register to: " + Util.bigIntegerToString(value));
+    setCanonical((value.longValue() ^ longXorIn) & longMask);
+  }
+
+  // for description see Calculator
+  @Override
+  public BigInteger getRegister() {
+    final long n = model.getReflectOut() ? (Long.reverse(canonical()) >>> (Long.SIZE - width)) : canonical();
+    final BigInteger r = Util.unsignedToBigInteger(n).xor(model.getXorOut());
+    log.finer("CRC value requested, returning: " + Util.bigIntegerToString(r));
+    return r;
+  }
+
+  // for description see Calculator
+  @Override
+  public void updateBit(final int b) {
+    if (reflected) {
+      final long feedback = (longRegister ^ b) & 1L;
+      longRegister = (longRegister >>> 1) ^ (-feedback & longPolynomial);
+    } else {
+      final long feedback = (longRegister >>> (Long.SIZE - 1)) ^ (b & 1L);
+      longRegister = (longRegister << 1) ^ (-feedback & longPolynomial);
+    }
+  }
+
+  // for description see Calculator
+  @Override
+  public void updateBit(final boolean b) {
+    updateBit(b ? 1 : 0);
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final byte[] d) {
+    log.finer("Updating CRC with an array of length: " + d.length);
+    update(d, 0, d.length);
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final byte[] d, final int offset, final int length) {
+    final long[] t0 = longTables[0];
+    final long[] t1 = longTables[1];
+    final long[] t2 = longTables[2];
+    final long[] t3 = longTables[3];
+    final long[] t4 = longTables[4];
+    final long[] t5 = longTables[5];
+    final long[] t6 = longTables[6];
+    final long[] t7 = longTables[7];
+    final int end = offset + length;
+    final int blockEnd = end - 7;
+    long r = longRegister;
+    int i = offset;
+    if (reflected) {
+      for (; i < blockEnd; i += 8) {
+        final long x = r ^ ((d[i] & 0xffL) | ((d[i + 1] & 0xffL) << 8) | ((d[i + 2] & 0xffL) << 16)
+            | ((d[i + 3] & 0xffL) << 24) | ((d[i + 4] & 0xffL) << 32) | ((d[i + 5] & 0xffL) << 40)
+            | ((d[i + 6] & 0xffL) << 48) | ((d[i + 7] & 0xffL) << 56));
+        r = t7[(int) x & 0xff] ^ t6[(int) (x >>> 8) & 0xff] ^ t5[(int) (x >>> 16) & 0xff]
+            ^ t4[(int) (x >>> 24) & 0xff] ^ t3[(int) (x >>> 32) & 0xff] ^ t2[(int) (x >>> 40) & 0xff]
+            ^ t1[(int) (x >>> 48) & 0xff] ^ t0[(int) (x >>> 56)];
+      }
+      for (; i < end; i++) {
+        r = (r >>> 8) ^ t0[((int) r ^ d[i]) & 0xff];
+      }
+    } else {
+      for (; i < blockEnd; i += 8) {
+        final long x = r ^ (((d[i] & 0xffL) << 56) | ((d[i + 1] & 0xffL) << 48) | ((d[i + 2] & 0xffL) << 40)
+            | ((d[i + 3] & 0xffL) << 32) | ((d[i + 4] & 0xffL) << 24) | ((d[i + 5] & 0xffL) << 16)
+            | ((d[i + 6] & 0xffL) << 8) | (d[i + 7] & 0xffL));
+        r = t7[(int) (x >>> 56)] ^ t6[(int) (x >>> 48) & 0xff] ^ t5[(int) (x >>> 40) & 0xff]
+            ^ t4[(int) (x >>> 32) & 0xff] ^ t3[(int) (x >>> 24) & 0xff] ^ t2[(int) (x >>> 16) & 0xff]
+            ^ t1[(int) (x >>> 8) & 0xff] ^ t0[(int) x & 0xff];
+      }
+      for (; i < end; i++) {
+        r = (r << 8) ^ t0[((int) (r >>> (Long.SIZE - 8)) ^ d[i]) & 0xff];
+      }
+    }
+    longRegister = r;
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final int b) {
+    final long[] t0 = longTables[0];
+    if (reflected) {
+      longRegister = (longRegister >>> 8) ^ t0[((int) longRegister ^ b) & 0xff];
+    } else {
+      longRegister = (longRegister << 8) ^ t0[((int) (longRegister >>> (Long.SIZE - 8)) ^ b) & 0xff];
+    }
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final BigInteger b) {
+    update(b.intValue());
+  }
+
+  // for description see Crc
+  @Override
+  protected BigInteger getCanonicalRegister() {
+    return Util.unsignedToBigInteger(canonical());
+  }
+
+  // for description see Crc
+  @Override
+  protected void setCanonicalRegister(final BigInteger value) {
+    setCanonical(value.longValue() & longMask);
+  }
+
+  // multiplies a polynomial by x modulo the generator polynomial
+  private long multiplyByX(final long a) {
+    final long n = (a << 1) & longMask;
+    return ((a >>> (width - 1)) & 1L) != 0 ? (n ^ generator) : n;
+  }
+
+  // multiplies two polynomials modulo the generator polynomial
+  private long multiply(final long a, final long b) {
+    long r = 0;
+    long n = a;
+    for (long m = b; m != 0; m >>>= 1) {
+      if ((m & 1L) != 0) {
+        r ^= n;
+      }
+      n = multiplyByX(n);
+    }
+    return r;
+  }
+
+  // for description see Crc
+  @Override
+  protected BigInteger shift(final BigInteger value, final long length) {
+    long p = 1;
+    for (int i = 0; i < 8; i++) {
+      p = multiplyByX(p);
+    }
+    long r = value.longValue() & longMask;
+    for (long n = length; n != 0; n >>>= 1) {
+      if ((n & 1L) != 0) {
+        r = multiply(r, p);
+      }
+      p = multiply(p, p);
+    }
+    return Util.unsignedToBigInteger(r);
+  }
+
+  // for description see Object
+  @Override
+  public String toString() {
+    return "LongCrc";
+  }
+
+  /**
+   * Main constructor.
+   *
+   * @param model model to be used for the calculator, the width of
+   *              the polynomial must not exceed 64 bits
+   */
+  public LongCrc(final CrcModel model) {
+    super(model, false);
+    log.fine("Long CRC object creation started");
+    width = model.getPolynomial().getWidth();
+    reflected = model.getReflectIn();
+    longMask = Util.makeLongMask(width);
+    final long polynomial = model.getPolynomial().getPolynomial().longValue() & longMask;
+    generator = polynomial;
+    longPolynomial = reflected ? (Long.reverse(polynomial) >>> (Long.SIZE - width)) : (polynomial << (Long.SIZE - width));
+    longXorIn = model.getXorIn().longValue() & longMask;
+    longTables = CrcTables.getLongTables(model);
+    setCanonical(longXorIn);
+    log.fine("Long CRC object creation completed");
+  }
+}
@@ -25,11 +25,16 @@ package cz.pecina.bin.bitwriter;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Output aggregate stream.
  *
+ * <p>If the output aggregate width does not exceed 64 bits, values
+ * are processed as <code>long</code>'s, otherwise
+ * <code>BigInteger</code> arithmetic is used.
+ *
  * @author Tomáš Pecina
  * @version 1.0.5
  */
@@ -44,6 +49,9 @@ public class OutAggregateStream implements Stream {
   protected int widthOutAggregate;
   protected Endianness endiannessOut;
   protected BigInteger mask;
+  protected boolean narrow;
+  protected long longMask;
+  protected final byte[] block = new byte[Constants.BLOCK_SIZE];
 
   /**
    * Sets output aggregate width.
@@ -61,6 +69,8 @@ public class OutAggregateStream implements Stream {
     }
     this.widthOutAggregate = widthOutAggregate;
     mask = Util.makeMask(widthOutAggregate);
+    narrow = (widthOutAggregate <= Long.SIZE);
+    longMask = Util.makeLongMask(widthOutAggregate);
     reset();
   }
 
@@ -74,6 +84,28 @@ public class OutAggregateStream implements Stream {
     return widthOutAggregate;
   }
 
+  /**
+   * Checks whether the stream is processed using <code>long</code>
+   * arithmetic.
+   *
+   * @return <code>true</code> if the output aggregate width does not
+   *         exceed 64 bits
+   */
+  public boolean isNarrow() {
+    return narrow;
+  }
+
+  /**
+   * Checks whether the chain of streams starting with this stream
+   * passes bytes on unchanged and without any side effects.
+   *
+   * @return <code>true</code> if the chain is an identity transform
+   */
+  public boolean isTransparent() {
+    return (widthOutAggregate == 8) && !processor.hasListeners(Variable.Type.AGGREGATE_STREAM_OUT)
+        && outStream.isTransparent();
+  }
+
   /**
    * Sets output endianness.
    *
@@ -100,6 +132,8 @@ public class OutAggregateStream implements Stream {
     log.fine("Setting defaults on OutAggregateStream");
     widthOutAggregate = 8;
     mask = Constants.FF;
+    narrow = true;
+    longMask = 0xffL;
     endiannessOut = Endianness.BIG;
     reset();
   }
@@ -113,7 +147,11 @@ public class OutAggregateStream implements Stream {
   // for description see Stream
   @Override
   public void write(final BigInteger arg) throws IOException {
-    log.finest("Writing BigInteger to OutStream: " + Util.bigIntegerToString(arg));
+    log.finest("Writing BigInteger to OutAggregateStream: " + Util.bigIntegerToString(arg));
+    if (narrow) {
+      write(arg.longValue());
+      return;
+    }
     final BigInteger value = arg.and(mask);
     final int widthOut = outStream.getWidthOut();
     try {
@@ -138,6 +176,96 @@ public class OutAggregateStream implements Stream {
     }
   }
 
+  // for description see Stream
+  @Override
+  public void write(final long arg) throws IOException {
+    if (!narrow) {
+      write(Util.unsignedToBigInteger(arg));
+      return;
+    }
+    if (log.isLoggable(Level.FINEST)) {
+      log.finest("Writing long to OutAggregateStream: " + Long.toUnsignedString(arg));
+    }
+    final long value = arg & longMask;
+    final int widthOut = outStream.getWidthOut();
+    try {
+      processor.trigger(Variable.Type.AGGREGATE_STREAM_OUT, value);
+    } catch (final ProcessorException exception) {
+      throw new IOException(exception.getMessage());
+    }
+    final long outMask = (1L << widthOut) - 1L;
+    if (endiannessOut == Endianness.BIG) {
+      for (int offset = widthOutAggregate - widthOut; offset >= 0; offset -= widthOut) {
+        outStream.write((value >>> offset) & outMask);
+      }
+    } else {
+      for (int offset = 0; offset < widthOutAggregate; offset += widthOut) {
+        outStream.write((value >>> offset) & outMask);
+      }
+    }
+  }
+
+  // for description see Stream
+  @Override
+  public void write(final byte[] data, final int offset, final int length) throws IOException {
+    log.finest("Writing block of " + length + " bytes to OutAggregateStream");
+    if (!narrow || processor.hasListeners(Variable.Type.AGGREGATE_STREAM_OUT)) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        write(data[i] & 0xffL);
+      }
+    } else if ((widthOutAggregate == 8) && (outStream.getWidthOut() == 8)) {
+      outStream.write(data, offset, length);
+    } else {
+      final int widthOut = outStream.getWidthOut();
+      int n = 0;
+      for (int i = offset, end = offset + length; i < end; i++) {
+        n = split(data[i] & 0xffL, n, widthOut);
+      }
+      if (n > 0) {
+        outStream.write(block, 0, n);
+      }
+    }
+  }
+
+  // for description see Stream
+  @Override
+  public void write(final long[] data, final int offset, final int length) throws IOException {
+    log.finest("Writing block of " + length + " longs to OutAggregateStream");
+    if (!narrow || processor.hasListeners(Variable.Type.AGGREGATE_STREAM_OUT)) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        write(data[i]);
+      }
+    } else {
+      final int widthOut = outStream.getWidthOut();
+      int n = 0;
+      for (int i = offset, end = offset + length; i < end; i++) {
+        n = split(data[i] & longMask, n, widthOut);
+      }
+      if (n > 0) {
+        outStream.write(block, 0, n);
+      }
+    }
+  }
+
+  // splits a value to the block, returns the new number of bytes in the block
+  private int split(final long value, final int position, final int widthOut) throws IOException {
+    int n = position;
+    if ((n + (widthOutAggregate / widthOut)) > block.length) {
+      outStream.write(block, 0, n);
+      n = 0;
+    }
+    if (endiannessOut == Endianness.BIG) {
+      for (int offset = widthOutAggregate - widthOut; offset >= 0; offset -= widthOut) {
+        block[n++] = (byte) (value >>> offset);
+      }
+    } else {
+      for (int offset = 0; offset < widthOutAggregate; offset += widthOut) {
+        block[n++] = (byte) (value >>> offset);
+      }
+    }
+    return n;
+  }
+
   // for description see Stream
   @Override
   public void flush() throws IOException {
@@ -25,6 +25,7 @@ package cz.pecina.bin.bitwriter;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -43,6 +44,8 @@ public class OutStream implements Stream {
   protected ControlledOutputStream controlledOutputStream;
   protected int widthOut;
   protected static final BigInteger MASK = Constants.FF;
+  protected static final long LONG_MASK = 0xffL;
+  protected final byte[] block = new byte[Constants.BLOCK_SIZE];
 
   /**
    * Sets output width.
@@ -69,6 +72,16 @@ public class OutStream implements Stream {
     return widthOut;
   }
 
+  /**
+   * Checks whether the chain of streams starting with this stream
+   * passes bytes on unchanged and without any side effects.
+   *
+   * @return <code>true</code> if the chain is an identity transform
+   */
+  public boolean isTransparent() {
+    return !processor.hasListeners(Variable.Type.STREAM_OUT) && controlledOutputStream.isTransparent();
+  }
+
   // for description see Stream
   @Override
   public void setDefaults() {
@@ -87,7 +100,16 @@ public class OutStream implements Stream {
   @Override
   public void write(final BigInteger arg) throws IOException {
     log.finest("Writing to OutStream: " + Util.bigIntegerToString(arg));
-    final BigInteger value = arg.and(MASK);
+    write(arg.longValue());
+  }
+
+  // for description see Stream
+  @Override
+  public void write(final long arg) throws IOException {
+    if (log.isLoggable(Level.FINEST)) {
+      log.finest("Writing long to OutStream: " + Long.toUnsignedString(arg));
+    }
+    final long value = arg & LONG_MASK;
     try {
       processor.trigger(Variable.Type.STREAM_OUT, value);
     } catch (final ProcessorException exception) {
@@ -96,6 +118,39 @@ public class OutStream implements Stream {
     controlledOutputStream.write(value);
   }
 
+  // for description see Stream
+  @Override
+  public void write(final byte[] data, final int offset, final int length) throws IOException {
+    log.finest("Writing block of " + length + " bytes to OutStream");
+    if (processor.hasListeners(Variable.Type.STREAM_OUT)
+        && !processor.trigger(Variable.Type.STREAM_OUT, data, offset, length)) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        write(data[i] & LONG_MASK);
+      }
+    } else {
+      controlledOutputStream.write(data, offset, length);
+    }
+  }
+
+  // for description see Stream
+  @Override
+  public void write(final long[] data, final int offset, final int length) throws IOException {
+    log.finest("Writing block of " + length + " longs to OutStream");
+    if (processor.hasListeners(Variable.Type.STREAM_OUT)) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        write(data[i]);
+      }
+    } else {
+      for (int i = offset, end = offset + length; i < end; i += block.length) {
+        final int n = Math.min(block.length, end - i);
+        for (int j = 0; j < n; j++) {
+          block[j] = (byte) data[i + j];
+        }
+        controlledOutputStream.write(block, 0, n);
+      }
+    }
+  }
+
   // for description see Stream
   @Override
   public void flush() throws IOException {
@@ -0,0 +1,193 @@
+/* ParallelCrc.java
+ *
+ * Copyright (C) 2015-19, Tomas Pecina <tomas@pecina.cz>
+ *
+ * This file is part of cz.pecina.bin, a suite of binary-file
+ * processing applications.
+ *
+ * This application is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The source code is available from <https://github.com/tompecina/bitwriter>.
+ */
+
+package cz.pecina.bin.bitwriter;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Logger;
+
+/**
+ * Parallel calculation of CRC's of included files.
+ *
+ * <p>If the streams pass the bytes of a file on unchanged and only
+ * CRC calculators are bound to the output stream and the controlled
+ * output stream, the file is split into chunks, the CRC's of which
+ * are calculated on the common fork/join pool.  The partial results
+ * are then appended to the registers of the calculators in order,
+ * which gives the same result as the sequential calculation, and
+ * the file is copied directly to the output.
+ *
+ * @author Tomáš Pecina
+ * @version 1.0.5
+ * @see IncludeElement
+ * @see Crc#append
+ */
+public final class ParallelCrc {
+
+  // static logger
+  private static final Logger log = Logger.getLogger(ParallelCrc.class.getName());
+
+  /**
+   * Default minimum size of included files for parallel calculation,
+   * in bytes.
+   */
+  public static final long DEFAULT_THRESHOLD = 0x4000000;
+
+  /**
+   * Default minimum size of a chunk, in bytes.
+   */
+  static final long DEFAULT_MIN_CHUNK_SIZE = 0x100000;
+
+  // minimum size of a chunk, only changed by tests
+  static long minChunkSize = DEFAULT_MIN_CHUNK_SIZE;
+
+  // size of the read buffer of a chunk
+  private static final int READ_BUFFER_SIZE = 0x10000;
+
+  // calculates the CRC's of a chunk
+  private static BigInteger[] calculate(final CrcModel[] models, final FileChannel source, final long position,
+      final long count) throws IOException {
+    final Crc[] crcs = new Crc[models.length];
+    for (int i = 0; i < models.length; i++) {
+      crcs[i] = Crc.create(models[i]);
+    }
+    final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, READ_BUFFER_SIZE));
+    final byte[] array = buffer.array();
+    for (long p = position, end = position + count; p < end; ) {
+      buffer.clear();
+      buffer.limit((int) Math.min(end - p, array.length));
+      final int n = source.read(buffer, p);
+      if (n < 0) {
+        throw new EOFException("File truncated during parallel CRC calculation");
+      }
+      for (Crc crc : crcs) {
+        crc.update(array, 0, n);
+      }
+      p += n;
+    }
+    final BigInteger[] r = new BigInteger[crcs.length];
+    for (int i = 0; i < crcs.length; i++) {
+      r[i] = crcs[i].getRegister();
+    }
+    return r;
+  }
+
+  /**
+   * Writes a region of a file to the streams, calculating the CRC's
+   * in parallel, if possible.
+   *
+   * @param     processor   the input tree processor object
+   * @param     source      the channel of the file
+   * @param     position    position of the first byte
+   * @param     count       number of bytes, which must all be present
+   *                        in the file
+   * @return                <code>true</code> if the region has been
+   *                        written, <code>false</code> if it has to be
+   *                        written sequentially
+   * @exception IOException on I/O error
+   */
+  public static boolean write(final InputTreeProcessor processor, final FileChannel source, final long position,
+      final long count) throws IOException {
+    final TriggerRegistry registry = processor.getTriggerRegistry();
+    if (registry.hasExpressions()) {
+      return false;
+    }
+    final List<TriggerRegistry.Listener> listeners = new ArrayList<>();
+    for (Variable.Type type : Variable.Type.values()) {
+      for (TriggerRegistry.Listener listener : registry.getListeners(type)) {
+        if (((type != Variable.Type.STREAM_OUT) && (type != Variable.Type.OUTPUT_STREAM))
+            || !(listener.getCalculator() instanceof Crc)) {
+          return false;
+        }
+        listeners.add(listener);
+      }
+    }
+    if (listeners.isEmpty()) {
+      return false;
+    }
+    registry.suspend();
+    try {
+      if (!processor.getInStream().isTransparent()) {
+        return false;
+      }
+      log.fine("Calculating CRC's of " + count + " bytes in parallel");
+      final CrcModel[] models = new CrcModel[listeners.size()];
+      for (int i = 0; i < models.length; i++) {
+        models[i] = ((Crc) listeners.get(i).getCalculator()).getModel();
+      }
+      final ForkJoinPool pool = ForkJoinPool.commonPool();
+      final int chunks = (int) Math.max(1L, Math.min(count / minChunkSize, pool.getParallelism() * 4L));
+      final long chunkSize = (count + chunks - 1) / chunks;
+      final List<ForkJoinTask<BigInteger[]>> tasks = new ArrayList<>();
+      for (long p = position, end = position + count; p < end; p += chunkSize) {
+        final long chunkPosition = p;
+        final long chunkCount = Math.min(chunkSize, end - p);
+        tasks.add(pool.submit(() -> calculate(models, source, chunkPosition, chunkCount)));
+      }
+      long remaining = count;
+      for (ForkJoinTask<BigInteger[]> task : tasks) {
+        final BigInteger[] values;
+        try {
+          values = task.get();
+        } catch (final InterruptedException exception) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Parallel CRC calculation interrupted");
+        } catch (final ExecutionException exception) {
+          throw new IOException(exception.getCause().getMessage());
+        }
+        final long chunkCount = Math.min(chunkSize, remaining);
+        for (int i = 0; i < values.length; i++) {
+          ((Crc) listeners.get(i).getCalculator()).append(values[i], chunkCount);
+        }
+        remaining -= chunkCount;
+      }
+      for (TriggerRegistry.Listener listener : listeners) {
+        listener.getVariable().invalidate();
+      }
+      processor.getControlledOutputStream().transferFrom(source, position, count);
+      log.fine("Parallel CRC calculation completed");
+      return true;
+    } finally {
+      registry.resume();
+    }
+  }
+
+  // for description see Object
+  @Override
+  public String toString() {
+    return "ParallelCrc";
+  }
+
+  // private constructor, no instances
+  private ParallelCrc() {
+  }
+}
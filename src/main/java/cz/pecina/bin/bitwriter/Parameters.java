@@ -77,6 +77,28 @@ public class Parameters {
         .desc("list all avaiable CRC models")
         .build());
 
+    options.addOption(
+        Option.builder()
+        .longOpt("verify-crc-models")
+        .desc("verify the check values of all CRC models")
+        .build());
+
+    options.addOption(
+        Option.builder()
+        .longOpt("find-crc")
+        .hasArg()
+        .argName("FILE")
+        .desc("find CRC models matching the samples in FILE")
+        .build());
+
+    options.addOption(
+        Option.builder()
+        .longOpt("find-crc-width")
+        .hasArg()
+        .argName("BITS")
+        .desc("width of the polynomials searched by --find-crc (default: derived from the samples)")
+        .build());
+
     options.addOption(
         Option.builder("s")
         .longOpt("string")
@@ -91,6 +113,37 @@ public class Parameters {
         .desc("produce hex output")
         .build());
 
+    options.addOption(
+        Option.builder("b")
+        .longOpt("buffer-size")
+        .hasArg()
+        .argName("BYTES")
+        .desc("size of the output buffer (default: " + ControlledOutputStream.DEFAULT_BUFFER_SIZE + ")")
+        .build());
+
+    options.addOption(
+        Option.builder("w")
+        .longOpt("hex-line-width")
+        .hasArg()
+        .argName("BYTES")
+        .desc("number of bytes per line in hex mode (default: " + HexEncoder.DEFAULT_BYTES_PER_LINE + ")")
+        .build());
+
+    options.addOption(
+        Option.builder("a")
+        .longOpt("hex-offsets")
+        .desc("show offsets in hex mode")
+        .build());
+
+    options.addOption(
+        Option.builder("p")
+        .longOpt("parallel-threshold")
+        .hasArg()
+        .argName("BYTES")
+        .desc("minimum size of included files for parallel CRC calculation, 0 to disable (default: "
+            + ParallelCrc.DEFAULT_THRESHOLD + ")")
+        .build());
+
     options.addOption(
         Option.builder("o")
         .longOpt("output-file")
@@ -123,8 +176,15 @@ public class Parameters {
   protected boolean crcFileNameFlag;
   protected String crcFileName;
   protected boolean listCrcFlag;
+  protected boolean verifyCrcFlag;
+  protected String findCrcFileName;
+  protected int findCrcWidth;
   protected String[] literalStrings;
   protected boolean hexMode;
+  protected int hexBytesPerLine = HexEncoder.DEFAULT_BYTES_PER_LINE;
+  protected boolean hexOffsets;
+  protected int bufferSize = ControlledOutputStream.DEFAULT_BUFFER_SIZE;
+  protected long parallelThreshold = ParallelCrc.DEFAULT_THRESHOLD;
   protected String[] fileNames;
 
   /**
@@ -177,6 +237,38 @@ public class Parameters {
     return listCrcFlag;
   }
 
+  /**
+   * Gets the verify CRC models option.
+   *
+   * @return verify CRC models option present
+   */
+  public boolean getVerifyCrcFlag() {
+    log.finer("Getting verifyCrcFlag: " + verifyCrcFlag);
+    return verifyCrcFlag;
+  }
+
+  /**
+   * Gets the name of the file with samples for the CRC search.
+   *
+   * @return samples file name or <code>null</code> if the search is
+   *         not requested
+   */
+  public String getFindCrcFileName() {
+    log.finer("Getting findCrcFileName: " + findCrcFileName);
+    return findCrcFileName;
+  }
+
+  /**
+   * Gets the width of the polynomials for the CRC search.
+   *
+   * @return width in bits, <code>0</code> if to be derived from
+   *         the samples
+   */
+  public int getFindCrcWidth() {
+    log.finer("Getting findCrcWidth: " + findCrcWidth);
+    return findCrcWidth;
+  }
+
   /**
    * Gets the array of literal input strings.
    *
@@ -207,6 +299,49 @@ public class Parameters {
     return hexMode;
   }
 
+  /**
+   * Gets the number of bytes per line in hexadecimal mode.
+   *
+   * @return number of bytes per line
+   */
+  public int getHexBytesPerLine() {
+    log.finer("Getting hexBytesPerLine: " + hexBytesPerLine);
+    return hexBytesPerLine;
+  }
+
+  /**
+   * Returns <code>true</code> if offsets are to be shown in
+   * hexadecimal mode.
+   *
+   * @return <code>true</code> if offsets are to be shown
+   */
+  public boolean getHexOffsets() {
+    log.finer("Getting hexOffsets: " + hexOffsets);
+    return hexOffsets;
+  }
+
+  /**
+   * Gets the size of the output buffer.
+   *
+   * @return size of the output buffer in bytes
+   */
+  public int getBufferSize() {
+    log.finer("Getting bufferSize: " + bufferSize);
+    return bufferSize;
+  }
+
+  /**
+   * Gets the minimum size of included files for parallel CRC
+   * calculation.
+   *
+   * @return the threshold in bytes, <code>0</code> if parallel
+   *         calculation is disabled
+   */
+  public long getParallelThreshold() {
+    log.finer("Getting parallelThreshold: " + parallelThreshold);
+    return parallelThreshold;
+  }
+
   /**
    * Gets file names.
    *
@@ -278,8 +413,58 @@ public class Parameters {
 
     listCrcFlag = line.hasOption("l");
 
+    verifyCrcFlag = line.hasOption("verify-crc-models");
+
+    findCrcFileName = line.getOptionValue("find-crc");
+
+    if (line.hasOption("find-crc-width")) {
+      try {
+        findCrcWidth = Integer.parseInt(line.getOptionValue("find-crc-width"));
+      } catch (final NumberFormatException exception) {
+        throw new ParametersException("Illegal CRC search width");
+      }
+      if ((findCrcWidth < 1) || (findCrcWidth > CrcFinder.MAX_SEARCH_WIDTH)) {
+        throw new ParametersException("Illegal CRC search width");
+      }
+    }
+
     hexMode = line.hasOption("x");
 
+    if (line.hasOption("w")) {
+      try {
+        hexBytesPerLine = Integer.parseInt(line.getOptionValue("w"));
+      } catch (final NumberFormatException exception) {
+        throw new ParametersException("Illegal line width");
+      }
+      if ((hexBytesPerLine < 1) || (hexBytesPerLine > HexEncoder.MAX_BYTES_PER_LINE)) {
+        throw new ParametersException("Illegal line width");
+      }
+    }
+
+    hexOffsets = line.hasOption("a");
+
+    if (line.hasOption("b")) {
+      try {
+        bufferSize = Integer.parseInt(line.getOptionValue("b"));
+      } catch (final NumberFormatException exception) {
+        throw new ParametersException("Illegal buffer size");
+      }
+      if (bufferSize < 1) {
+        throw new ParametersException("Illegal buffer size");
+      }
+    }
+
+    if (line.hasOption("p")) {
+      try {
+        parallelThreshold = Long.parseLong(line.getOptionValue("p"));
+      } catch (final NumberFormatException exception) {
+        throw new ParametersException("Illegal parallel threshold");
+      }
+      if (parallelThreshold < 0) {
+        throw new ParametersException("Illegal parallel threshold");
+      }
+    }
+
     log.fine("Command line parsing completed");
     return line;
   }
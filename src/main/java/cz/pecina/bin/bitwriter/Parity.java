@@ -44,65 +44,70 @@ public class Parity extends Calculator {
 
   // fields
   protected ParityModel model;
+  protected boolean odd;
 
   // for description see Calculator
   @Override
   public void setRegister(final BigInteger value) {
     log.finer("Setting register to: " + Util.bigIntegerToString(value));
-    register = value.and(BigInteger.ONE);
+    odd = value.testBit(0);
   }
 
   // for description see Calculator
   @Override
   public void updateBit(final int b) {
     log.finest("Updating Parity with: " + b);
-    if ((b & 1) == 1) {
-      register = register.flipBit(0);
-    }
+    odd ^= (b & 1) == 1;
   }
 
   // for description see Calculator
   @Override
   public void updateBit(final boolean b) {
     log.finest("Updating Parity with: " + b);
-    if (b) {
-      register = register.flipBit(0);
-    }
+    odd ^= b;
   }
 
   // for description see Calculator
   @Override
   public void update(final byte[] d) {
     log.finest("Updating Parity with an array of length: " + d.length);
-    for (byte b : d) {
-      update(b);
+    update(d, 0, d.length);
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final byte[] d, final int offset, final int length) {
+    log.finest("Updating Parity with a block of length: " + length);
+    int x = 0;
+    for (int i = offset, end = offset + length; i < end; i++) {
+      x ^= d[i];
     }
+    odd ^= (Integer.bitCount(x & 0xff) & 1) == 1;
   }
 
   // for description see Calculator
   @Override
   public void update(final int b) {
     log.finest("Updating Parity with: " + b);
-    if ((((((b ^ ((b << 4) | (b >> 4))) + 0x41) | 0x7c) + 2) >> 7) == 1) {
-      register = register.flipBit(0);
-    }
+    odd ^= (Integer.bitCount(b) & 1) == 1;
   }
 
   // for description see Calculator
   @Override
   public void update(final BigInteger b) {
     log.finest("Updating Parity with: " + Util.bigIntegerToString(b));
-    for (int i = b.bitLength() - 1; i >= 0; i--) {
-      if (b.testBit(i)) {
-        register = register.flipBit(0);
-      }
+    if (b.bitLength() < Long.SIZE) {
+      // the bits above bitLength() are copies of the sign bit and are not counted
+      odd ^= ((Long.bitCount(b.longValue() & Util.makeLongMask(b.bitLength()))) & 1) == 1;
+    } else {
+      odd ^= (((b.signum() < 0) ? (b.bitLength() - b.bitCount()) : b.bitCount()) & 1) == 1;
     }
   }
 
   // for description see Calculator
   @Override
   public BigInteger getRegister() {
-    final BigInteger r = ((register.testBit(0) == (model == ParityModel.ODD)) ? BigInteger.ZERO : BigInteger.ONE);
+    final BigInteger r = ((odd == (model == ParityModel.ODD)) ? BigInteger.ZERO : BigInteger.ONE);
     log.finer("Getting register: " + Util.bigIntegerToString(r));
     return r;
   }
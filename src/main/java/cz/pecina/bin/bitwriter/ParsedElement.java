@@ -54,6 +54,11 @@ public abstract class ParsedElement {
    */
   public static final String[] PARITY_MODELS = {"even", "odd"};
 
+  /**
+   * String array of all checksum models.
+   */
+  public static final String[] SUM_MODELS = {"modular", "ones-complement", "fletcher", "adler", "bsd", "sysv"};
+
   /**
    * String array of all polynomial notations.
    */
@@ -339,6 +344,32 @@ public abstract class ParsedElement {
     processor.getInStream().write(value);
   }
 
+  /**
+   * Writes a block of bytes, each interpreted as an unsigned 8-bit
+   * value, to InStream.
+   *
+   * @param     data        array containing the data to be written
+   * @param     offset      offset of the first value in the array
+   * @param     length      number of values to be written
+   * @exception IOException on I/O error
+   */
+  public void write(final byte[] data, final int offset, final int length) throws IOException {
+    processor.getInStream().write(data, offset, length);
+  }
+
+  /**
+   * Writes a block of <code>long</code> values, each interpreted as
+   * an unsigned 64-bit quantity, to InStream.
+   *
+   * @param     data        array containing the data to be written
+   * @param     offset      offset of the first value in the array
+   * @param     length      number of values to be written
+   * @exception IOException on I/O error
+   */
+  public void write(final long[] data, final int offset, final int length) throws IOException {
+    processor.getInStream().write(data, offset, length);
+  }
+
   // for description see Object
   @Override
   public String toString() {
@@ -27,13 +27,24 @@ import java.io.InputStream;
 import java.io.PrintStream;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
 /**
- * Preset CRC models, normally fetched from a file before processing.
+ * Preset CRC models.  The default models are compiled in, see
+ * {@link PresetCrcModelsGenerator}, other models are fetched from
+ * a file before processing.
+ * Models are indexed by their (case-folded) IDs and names.  The check
+ * values of the models are only verified on demand, see
+ * {@link #verify()}, or when a model is first used, see
+ * {@link #getChecked}.
  *
  * @author Tomáš Pecina
  * @version 1.0.5
@@ -43,6 +54,32 @@ public class PresetCrcModels extends ArrayList<CrcModel> {
   // static logger
   private static final Logger log = Logger.getLogger(PresetCrcModels.class.getName());
 
+  // fields
+  protected final Map<String, CrcModel> index = new HashMap<>();
+  protected final Set<CrcModel> verified = ConcurrentHashMap.newKeySet();
+
+  // folds the case of a name
+  private static String fold(final String name) {
+    return name.trim().toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * Adds a model to the list and to the index.  If the ID or a name
+   * of the model has already been used by another model, the earlier
+   * model takes precedence.
+   *
+   * @param  model the CRC model
+   * @return       <code>true</code>
+   */
+  @Override
+  public boolean add(final CrcModel model) {
+    index.putIfAbsent(fold(model.getId()), model);
+    for (String name : model.getNames()) {
+      index.putIfAbsent(fold(name), model);
+    }
+    return super.add(model);
+  }
+
   /**
    * Generates a lists of all models and sends it to a print stream.
    *
@@ -73,18 +110,55 @@ public class PresetCrcModels extends ArrayList<CrcModel> {
    * @return      the CRC model or <code>null</code> if not found
    */
   public CrcModel getExtended(final String name) {
-    final String trimmedName = name.trim();
-    for (CrcModel model : this) {
-      if (model.getId().equalsIgnoreCase(trimmedName)) {
-        return model;
+    return index.get(fold(name));
+  }
+
+  // checks the model against its check value, if not yet done
+  private void verify(final CrcModel model) throws PresetCrcModelsException {
+    if (model.hasCheck() && !verified.contains(model)) {
+      log.finest("Checking the value for: " + model.getId());
+      final Crc c = Crc.create(model);
+      c.update("123456789".getBytes());
+      if (!c.getRegister().equals(model.getCheck())) {
+        throw new PresetCrcModelsException("Model '" + model.getId() + "' failed integrity check");
       }
-      for (String alias : model.getNames()) {
-        if (alias.equalsIgnoreCase(trimmedName)) {
-          return model;
-        }
+      log.finest("Check passed");
+      verified.add(model);
+    }
+  }
+
+  /**
+   * Finds a CRC model according to ID or name (alias) and, on its
+   * first use, checks its integrity.
+   *
+   * @param     name               the search string
+   * @return                       the CRC model or <code>null</code> if
+   *                               not found
+   * @exception ProcessorException if the model fails the integrity check
+   */
+  public CrcModel getChecked(final String name) throws ProcessorException {
+    final CrcModel model = getExtended(name);
+    if (model != null) {
+      try {
+        verify(model);
+      } catch (final PresetCrcModelsException exception) {
+        throw new ProcessorException(exception.getMessage());
       }
     }
-    return null;
+    return model;
+  }
+
+  /**
+   * Checks the integrity of all models.
+   *
+   * @exception PresetCrcModelsException if a model fails the integrity
+   *                                     check
+   */
+  public void verify() throws PresetCrcModelsException {
+    log.fine("Verifying all models");
+    for (CrcModel model : this) {
+      verify(model);
+    }
   }
 
   // processes the file
@@ -146,16 +220,6 @@ public class PresetCrcModels extends ArrayList<CrcModel> {
           model.setCheck(new BigInteger(checkElement.getTextContent().trim(), 16));
         }
         add(model);
-        if (model.hasCheck()) {
-          log.finest("Checking the value for: " + model.getId());
-          final Crc c = new Crc(model);
-          c.update("123456789".getBytes());
-          if (c.getRegister().equals(model.getCheck())) {
-            log.finest("Check passed");
-          } else {
-            throw new PresetCrcModelsException("Model '" + model.getId() + "' failed integrity check");
-          }
-        }
         log.finer("Read: " + model.getId());
       } catch (final ProcessorException | PolynomialException | NumberFormatException | NullPointerException exception) {
         throw new PresetCrcModelsException("Error in CRC models file (7), exception: " + exception.getMessage());
@@ -171,6 +235,24 @@ public class PresetCrcModels extends ArrayList<CrcModel> {
     return "PresetCrcModels";
   }
 
+  /**
+   * Creates the default models, generated from the internal models
+   * file at build time.
+   *
+   * @exception PresetCrcModelsException on errors in the generated models
+   */
+  public PresetCrcModels() throws PresetCrcModelsException {
+    log.fine("Setting up default CRC model presets");
+
+    try {
+      PresetCrcModelsCatalog.addTo(this);
+    } catch (final ProcessorException | PolynomialException exception) {
+      throw new PresetCrcModelsException("Error in default CRC models, exception: " + exception.getMessage());
+    }
+
+    log.fine("CRC model presets set up");
+  }
+
   /**
    * Main constructor.
    *
@@ -80,13 +80,24 @@ public class RadixElement extends ParsedElement {
                   if ((split.length() % 2) != 0) {
                     throw new ProcessorException("Error in input file, illegal hex string: " + split);
                   }
+                  final byte[] bytes = new byte[split.length() / 2];
+                  int n = 0;
                   for (int i = 0; i < split.length(); i += 2) {
+                    final int high = Character.digit(split.charAt(i), radix);
+                    final int low = Character.digit(split.charAt(i + 1), radix);
+                    if ((high >= 0) && (low >= 0)) {
+                      bytes[n++] = (byte) ((high << 4) | low);
+                      continue;
+                    }
+                    write(bytes, 0, n);
+                    n = 0;
                     try {
                       write(new BigInteger(split.substring(i, (i + 2)), radix));
                     } catch (final NumberFormatException | NullPointerException exception) {
                       throw new ProcessorException("Illegal number format (2): " + split);
                     }
                   }
+                  write(bytes, 0, n);
                 }
               }
             }
@@ -55,14 +55,31 @@ public class RandomElement extends ParsedElement {
       random = new Random();
     }
     final byte[] buffer = new byte[1];
-    final BigInteger mask = Util.makeMask(width);
-    for (int iter = 0; iter < length; iter++) {
-      BigInteger r = BigInteger.ZERO;
-      for (int i = 0; i < width; i += 8) {
-        random.nextBytes(buffer);
-        r = r.shiftLeft(8).or(BigInteger.valueOf(buffer[0] & 0xff));
+    if (width <= Long.SIZE) {
+      final long mask = Util.makeLongMask(width);
+      final long[] block = new long[Math.min(length, Constants.BLOCK_SIZE)];
+      for (int iter = 0; iter < length; iter += block.length) {
+        final int n = Math.min(block.length, length - iter);
+        for (int j = 0; j < n; j++) {
+          long r = 0L;
+          for (int i = 0; i < width; i += 8) {
+            random.nextBytes(buffer);
+            r = (r << 8) | (buffer[0] & 0xffL);
+          }
+          block[j] = r & mask;
+        }
+        write(block, 0, n);
+      }
+    } else {
+      final BigInteger mask = Util.makeMask(width);
+      for (int iter = 0; iter < length; iter++) {
+        BigInteger r = BigInteger.ZERO;
+        for (int i = 0; i < width; i += 8) {
+          random.nextBytes(buffer);
+          r = r.shiftLeft(8).or(BigInteger.valueOf(buffer[0] & 0xff));
+        }
+        write(r.and(mask));
       }
-      write(r.and(mask));
     }
     log.fine("<random> element processed");
   }
@@ -24,8 +24,13 @@
 package cz.pecina.bin.bitwriter;
 
 import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.script.Bindings;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
@@ -43,12 +48,20 @@ public class ScriptProcessor {
   // static logger
   private static final Logger log = Logger.getLogger(ScriptProcessor.class.getName());
 
+  // pattern matching the identifiers in a script
+  private static final Pattern IDENTIFIER = Pattern.compile("[a-zA-Z_$][a-zA-Z\\d_$]*");
+
   // fields
   protected InputTreeProcessor processor;
   protected ScriptEngineManager manager;
   protected ScriptEngine engine;
   protected Bindings bindings;
   protected Map<String, Variable> variables;
+  protected final Map<String, Set<String>> identifiers = new HashMap<>();
+  protected Object value;
+  protected long unsignedValue;
+  protected boolean valuePending;
+  protected boolean unsignedValuePending;
 
   /**
    * Tests if the expression is a script invocation.
@@ -85,16 +98,62 @@ public class ScriptProcessor {
   }
 
   /**
-   * Puts value to variable 'val'.
+   * Puts value to variable 'val'.  The binding is only updated when
+   * a script is actually evaluated.
    *
    * @param     value value of expression 'val'
    */
   public void putValue(final Object value) {
-    bindings.put("val", value);
+    this.value = value;
+    valuePending = true;
+    unsignedValuePending = false;
+  }
+
+  /**
+   * Puts value to variable 'val', <code>long</code> version.  The value
+   * is only converted to <code>BigInteger</code> and bound when
+   * a script is actually evaluated.
+   *
+   * @param     value value of expression 'val', interpreted as
+   *                  an unsigned 64-bit quantity
+   */
+  public void putUnsignedValue(final long value) {
+    unsignedValue = value;
+    unsignedValuePending = true;
+    valuePending = false;
+  }
+
+  // publishes the pending value of 'val' to the bindings
+  private void publishValue() {
+    if (unsignedValuePending) {
+      bindings.put("val", Util.unsignedToBigInteger(unsignedValue));
+      unsignedValuePending = false;
+    } else if (valuePending) {
+      bindings.put("val", value);
+      value = null;
+      valuePending = false;
+    }
+  }
+
+  // gets the identifiers that may refer to variables in the script
+  private Set<String> getIdentifiers(final String expression) {
+    Set<String> r = identifiers.get(expression);
+    if (r == null) {
+      r = new LinkedHashSet<>();
+      final Matcher matcher = IDENTIFIER.matcher(expression);
+      while (matcher.find()) {
+        r.add(matcher.group());
+      }
+      identifiers.put(expression, r);
+    }
+    return r;
   }
 
   /**
    * Evaluates script, without conversion of the returned object.
+   * Only the variables referenced by the script are put to
+   * the bindings and retrieved from them afterwards, so that
+   * the registers of the other calculators need not be calculated.
    *
    * @param     expression         expression to be evaluated
    * @return                       returned object
@@ -106,9 +165,16 @@ public class ScriptProcessor {
     bindings.put("streamNumber", stream.getStreamNumber());
     bindings.put("streamLength", stream.getStreamLength());
     bindings.put("totalLength", stream.getTotalLength());
-    for (String name : variables.keySet()) {
-      log.finest("Putting variable '" + name + "' to bindings, value:" + variables.get(name).getValue());
-      bindings.put(name, variables.get(name).getValue());
+    publishValue();
+    final Set<String> names = (expression == null) ? null : getIdentifiers(expression);
+    if (names != null) {
+      for (String name : names) {
+        final Variable variable = variables.get(name);
+        if (variable != null) {
+          log.finest("Putting variable '" + name + "' to bindings");
+          bindings.put(name, variable.getValue());
+        }
+      }
     }
     Object result;
     try {
@@ -118,18 +184,22 @@ public class ScriptProcessor {
     } catch (final RuntimeException exception) {
       throw new ProcessorException("Script error (2), exception: " + exception.getMessage());
     }
-    for (String name : variables.keySet()) {
+    for (String name : names) {
+      final Variable variable = variables.get(name);
+      if (variable == null) {
+        continue;
+      }
       Object value = bindings.get(name);
       log.finest("Retrieved variable '" + name + "' from bindings, value: " + value);
-      if (variables.get(name).getCalculator() == null) {
+      if (variable.getCalculator() == null) {
         if (value instanceof BigInteger) {
-          variables.get(name).setValue((BigInteger) value);
+          variable.setValue((BigInteger) value);
         } else {
           if (value instanceof Double) {
             value = Math.round((Double) value);
           }
           try {
-            variables.get(name).setValue(new BigInteger(value.toString()));
+            variable.setValue(new BigInteger(value.toString()));
           } catch (final NumberFormatException | NullPointerException exception) {
             throw new ProcessorException("Script set variable '" + name + "' to illegal value: " + value);
           }
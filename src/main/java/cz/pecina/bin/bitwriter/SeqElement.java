@@ -64,6 +64,7 @@ public class SeqElement extends ParsedElement {
           element, "reflect-in", false, processor.getScriptProcessor()));
       processor.getInStream().setEndiannessIn(Stream.Endianness.valueOf(extractStringArrayAttribute(
           element, "endianness-in", ENDIANESS_TYPES, "big", processor.getScriptProcessor()).toUpperCase()));
+      processor.getInStream().setPlan(StreamPlan.compile(processor));
     }
     final int count = extractIntegerAttribute(element, "repeat", 0, null, 1, processor.getScriptProcessor());
     for (int iter = 0; iter < count; iter++) {
@@ -25,6 +25,7 @@ package cz.pecina.bin.bitwriter;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 /**
  * Stream interface.
@@ -58,6 +59,68 @@ public interface Stream extends AutoCloseable {
    */
   void write(BigInteger value) throws IOException;
 
+  /**
+   * Write a <code>long</code> value, interpreted as an unsigned 64-bit
+   * quantity, to the stream.  Streams whose width does not exceed
+   * 64 bits process such values without creating any
+   * <code>BigInteger</code> objects; the result is the same as if
+   * the value had been written using {@link #write(BigInteger)}.
+   *
+   * @param     value       data to be written
+   * @exception IOException on I/O error
+   */
+  void write(long value) throws IOException;
+
+  /**
+   * Writes a block of bytes, each interpreted as an unsigned 8-bit
+   * value, to the stream.  The result is the same as if the values
+   * had been written one by one; however, unless a variable is bound
+   * to the stream, the whole block is transformed and passed on
+   * at once.
+   *
+   * @param     data        array containing the data to be written
+   * @param     offset      offset of the first value in the array
+   * @param     length      number of values to be written
+   * @exception IOException on I/O error
+   */
+  void write(byte[] data, int offset, int length) throws IOException;
+
+  /**
+   * Writes a block of <code>long</code> values, each interpreted as
+   * an unsigned 64-bit quantity, to the stream.  The result is
+   * the same as if the values had been written one by one; however,
+   * unless a variable is bound to the stream, the whole block is
+   * transformed and passed on at once.
+   *
+   * @param     data        array containing the data to be written
+   * @param     offset      offset of the first value in the array
+   * @param     length      number of values to be written
+   * @exception IOException on I/O error
+   */
+  void write(long[] data, int offset, int length) throws IOException;
+
+  /**
+   * Writes the remaining bytes of a buffer, each interpreted as
+   * an unsigned 8-bit value, to the stream.  On return, the position
+   * of the buffer is equal to its limit.
+   *
+   * @param     data        buffer containing the data to be written
+   * @exception IOException on I/O error
+   */
+  default void write(final ByteBuffer data) throws IOException {
+    if (data.hasArray()) {
+      write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+      data.position(data.limit());
+    } else {
+      final byte[] block = new byte[Math.min(data.remaining(), Constants.BLOCK_SIZE)];
+      while (data.hasRemaining()) {
+        final int length = Math.min(data.remaining(), block.length);
+        data.get(block, 0, length);
+        write(block, 0, length);
+      }
+    }
+  }
+
   /**
    * Flushes the stream.
    *
@@ -0,0 +1,178 @@
+/* StreamPlan.java
+ *
+ * Copyright (C) 2015-19, Tomas Pecina <tomas@pecina.cz>
+ *
+ * This file is part of cz.pecina.bin, a suite of binary-file
+ * processing applications.
+ *
+ * This application is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The source code is available from <https://github.com/tompecina/bitwriter>.
+ */
+
+package cz.pecina.bin.bitwriter;
+
+import java.math.BigInteger;
+import java.util.logging.Logger;
+
+/**
+ * Compiled form of a stream configuration.
+ *
+ * <p>If the input width is 8 bits and both aggregate widths are
+ * multiples of 8 bits, the chain of streams maps every input byte
+ * to exactly one output byte, either unchanged or with its bits
+ * reversed.  The mapping repeats with a period equal to the least
+ * common multiple of the aggregate widths, so it can be described
+ * by a permutation of byte positions within the period and
+ * a 256-entry translation table.  Whole periods of bytes can then be
+ * transformed without passing them through the individual streams.
+ *
+ * @author Tomáš Pecina
+ * @version 1.0.5
+ * @see SeqElement
+ */
+public final class StreamPlan {
+
+  // static logger
+  private static final Logger log = Logger.getLogger(StreamPlan.class.getName());
+
+  // table of bytes with reversed bit order
+  private static final byte[] REVERSED = new byte[0x100];
+
+  static {
+    for (int i = 0; i < REVERSED.length; i++) {
+      REVERSED[i] = (byte) (Integer.reverse(i) >>> (Integer.SIZE - 8));
+    }
+  }
+
+  // fields
+  private final int period;
+  private final int[] source;
+  private final boolean reverse;
+
+  /**
+   * Gets the period of the plan.
+   *
+   * @return the number of bytes forming one period
+   */
+  public int getPeriod() {
+    return period;
+  }
+
+  /**
+   * Transforms a block of bytes.
+   *
+   * @param data   array containing the input bytes
+   * @param offset offset of the first input byte in the array
+   * @param length number of bytes to be transformed, must be
+   *               a multiple of the period
+   * @param target array receiving the output bytes, from index 0
+   */
+  public void apply(final byte[] data, final int offset, final int length, final byte[] target) {
+    for (int base = 0; base < length; base += period) {
+      final int from = offset + base;
+      if (reverse) {
+        for (int k = 0; k < period; k++) {
+          target[base + k] = REVERSED[data[from + source[k]] & 0xff];
+        }
+      } else {
+        for (int k = 0; k < period; k++) {
+          target[base + k] = data[from + source[k]];
+        }
+      }
+    }
+  }
+
+  /**
+   * Compiles the current configuration of the streams.
+   *
+   * @param  processor the input tree processor object
+   * @return           the plan or <code>null</code> if the configuration
+   *                   cannot be compiled or is an identity transform
+   */
+  public static StreamPlan compile(final InputTreeProcessor processor) {
+    log.fine("Compiling stream plan");
+    final int widthIn = processor.getInStream().getWidthIn();
+    final int widthInAggregate = processor.getInAggregateStream().getWidthInAggregate();
+    final int widthOutAggregate = processor.getOutAggregateStream().getWidthOutAggregate();
+    if ((widthIn != 8) || ((widthInAggregate % 8) != 0) || ((widthOutAggregate % 8) != 0)) {
+      log.fine("Configuration not compiled");
+      return null;
+    }
+    final long bits = BigInteger.valueOf(widthInAggregate).multiply(BigInteger.valueOf(widthOutAggregate))
+        .divide(BigInteger.valueOf(widthInAggregate).gcd(BigInteger.valueOf(widthOutAggregate))).longValue();
+    if (bits > (Constants.BLOCK_SIZE * 8)) {
+      log.fine("Period too long, configuration not compiled");
+      return null;
+    }
+    final int period = (int) (bits / 8);
+    final int[] source = new int[period];
+    final int[] sourceBit = new int[period * 8];
+    final boolean bigIn = (processor.getInStream().getEndiannessIn() == Stream.Endianness.BIG);
+    final boolean reflectIn = processor.getInAggregateStream().getReflectIn();
+    final boolean reflectOut = processor.getBitStream().getReflectOut();
+    final boolean bigOut = (processor.getOutAggregateStream().getEndiannessOut() == Stream.Endianness.BIG);
+    final int bytesIn = widthInAggregate / 8;
+    final int bytesOut = widthOutAggregate / 8;
+
+    // follow every input bit through the streams
+    for (int j = 0; j < period; j++) {
+      final int positionIn = j % bytesIn;
+      for (int b = 0; b < 8; b++) {
+        final int bitIn = (bigIn ? (bytesIn - 1 - positionIn) : positionIn) * 8 + b;
+        final int sequence = ((j / bytesIn) * widthInAggregate)
+            + (reflectIn ? bitIn : (widthInAggregate - 1 - bitIn));
+        final int t = sequence % widthOutAggregate;
+        final int bitOut = reflectOut ? t : (widthOutAggregate - 1 - t);
+        final int positionOut = bitOut / 8;
+        final int k = ((sequence / widthOutAggregate) * bytesOut)
+            + (bigOut ? (bytesOut - 1 - positionOut) : positionOut);
+        source[k] = j;
+        sourceBit[(k * 8) + (bitOut % 8)] = (j * 8) + b;
+      }
+    }
+
+    // check that every output byte is a whole input byte
+    final boolean reverse = (sourceBit[0] % 8) != 0;
+    boolean identity = !reverse;
+    for (int k = 0; k < period; k++) {
+      for (int b = 0; b < 8; b++) {
+        if (sourceBit[(k * 8) + b] != ((source[k] * 8) + (reverse ? (7 - b) : b))) {
+          log.fine("Irregular mapping, configuration not compiled");
+          return null;
+        }
+      }
+      identity &= (source[k] == k);
+    }
+    if (identity) {
+      log.fine("Identity transform, no plan needed");
+      return null;
+    }
+    log.fine("Stream plan compiled, period: " + period + ", reverse: " + reverse);
+    return new StreamPlan(period, source, reverse);
+  }
+
+  // for description see Object
+  @Override
+  public String toString() {
+    return "StreamPlan";
+  }
+
+  // main constructor
+  private StreamPlan(final int period, final int[] source, final boolean reverse) {
+    this.period = period;
+    this.source = source;
+    this.reverse = reverse;
+  }
+}
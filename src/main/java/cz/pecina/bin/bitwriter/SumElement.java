@@ -46,15 +46,20 @@ public class SumElement extends VariableElement {
     final Variable variable = getOrCreateVariable(element);
     variable.reset();
     setVariableType(variable, element, "stream-out");
-    final int width = extractIntegerAttribute(element, "width", 1, Integer.MAX_VALUE, 8, processor.getScriptProcessor());
-    if (width < 1) {
+    final CheckSumModel.Algorithm algorithm = CheckSumModel.Algorithm.valueOf(Util.hyphensToUnderscores(
+        extractStringArrayAttribute(element, "model", SUM_MODELS, "modular", processor.getScriptProcessor()))
+        .toUpperCase());
+    final int width = extractIntegerAttribute(element, "width", 1, Integer.MAX_VALUE,
+        CheckSumModel.getDefaultWidth(algorithm), processor.getScriptProcessor());
+    if (!CheckSumModel.isLegalWidth(algorithm, width)) {
       throw new ProcessorException("Illegal checksum width: " + width);
     }
-    final BigInteger xorIn = extractBigIntegerAttribute(
-        element, "xor-in", null, null, BigInteger.ZERO, processor.getScriptProcessor());
+    final BigInteger xorIn = extractBigIntegerAttribute(element, "xor-in", null, null,
+        (algorithm == CheckSumModel.Algorithm.ADLER) ? BigInteger.ONE : BigInteger.ZERO,
+        processor.getScriptProcessor());
     final BigInteger xorOut = extractBigIntegerAttribute(
         element, "xor-out", null, null, BigInteger.ZERO, processor.getScriptProcessor());
-    variable.setCalculator(new CheckSum(new CheckSumModel(width, xorIn, xorOut)));
+    variable.setCalculator(CheckSum.create(new CheckSumModel(algorithm, width, xorIn, xorOut)));
 
     log.fine("<sum> element processed");
   }
@@ -0,0 +1,120 @@
+/* SysvCheckSum.java
+ *
+ * Copyright (C) 2015-19, Tomas Pecina <tomas@pecina.cz>
+ *
+ * This file is part of cz.pecina.bin, a suite of binary-file
+ * processing applications.
+ *
+ * This application is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The source code is available from <https://github.com/tompecina/bitwriter>.
+ */
+
+package cz.pecina.bin.bitwriter;
+
+import java.math.BigInteger;
+import java.util.logging.Logger;
+
+/**
+ * System V checksum calculator.  Each value is taken as a byte;
+ * the bytes are added modulo 2<sup>32</sup> and the sum is folded
+ * to 16 bits with end-around carry.  The folding is deferred until
+ * the register is read.
+ *
+ * @author Tomáš Pecina
+ * @version 1.0.5
+ * @see CheckSumModel.Algorithm#SYSV
+ */
+public class SysvCheckSum extends CheckSum {
+
+  // static logger
+  private static final Logger log = Logger.getLogger(SysvCheckSum.class.getName());
+
+  // fields
+  protected long sum;
+
+  // for description see Calculator
+  @Override
+  public void setRegister(final BigInteger value) {
+    log.finer("Setting register to: " + Util.bigIntegerToString(value));
+    sum = value.longValue() & 0xffff;
+  }
+
+  // for description see Calculator
+  @Override
+  public BigInteger getRegister() {
+    final long s = sum & 0xffffffffL;
+    final long r = (s & 0xffff) + (s >>> 16);
+    final BigInteger result = BigInteger.valueOf((r & 0xffff) + (r >>> 16)).xor(model.getXorOut());
+    log.finer("Getting register: " + Util.bigIntegerToString(result));
+    return result;
+  }
+
+  // for description see Calculator
+  @Override
+  public void updateBit(final int b) {
+    sum += b & 1;
+  }
+
+  // for description see Calculator
+  @Override
+  public void updateBit(final boolean b) {
+    if (b) {
+      sum++;
+    }
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final byte[] d, final int offset, final int length) {
+    log.finest("Updating SysvCheckSum with a block of length: " + length);
+    long s = sum;
+    for (int i = offset, end = offset + length; i < end; i++) {
+      s += d[i] & 0xff;
+    }
+    sum = s;
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final int b) {
+    sum += b & 0xff;
+  }
+
+  // for description see Calculator
+  @Override
+  public void update(final BigInteger b) {
+    update(b.and(Constants.FF).intValue());
+  }
+
+  // for description see Object
+  @Override
+  public String toString() {
+    return "SysvCheckSum";
+  }
+
+  /**
+   * Main constructor.
+   *
+   * @param model model to be used for the calculator
+   */
+  public SysvCheckSum(final CheckSumModel model) {
+    super(model);
+    log.fine("Creation of new SysvCheckSum started");
+
+    setRegister(model.getXorIn());
+
+    log.fine("Creation of new SysvCheckSum completed");
+  }
+}
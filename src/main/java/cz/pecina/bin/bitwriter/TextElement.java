@@ -24,7 +24,6 @@
 package cz.pecina.bin.bitwriter;
 
 import java.io.IOException;
-import java.math.BigInteger;
 import java.util.logging.Logger;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -55,14 +54,14 @@ public class TextElement extends ParsedElement {
           String text;
           text = trim ? ((Text) content).getTextContent().trim() : ((Text) content).getTextContent();
           if (charset.equals("raw")) {
+            final long[] codePoints = new long[text.length()];
             for (int i = 0; i < text.length(); i++) {
-              write(BigInteger.valueOf(text.codePointAt(i)));
+              codePoints[i] = text.codePointAt(i);
             }
+            write(codePoints, 0, codePoints.length);
           } else {
             final byte[] bytes = text.getBytes(charset);
-            for (byte b : bytes) {
-              write(BigInteger.valueOf(b & 0xff));
-            }
+            write(bytes, 0, bytes.length);
           }
         } else if (content instanceof Element) {
           final Element innerElement = (Element) content;
@@ -0,0 +1,225 @@
+/* TriggerRegistry.java
+ *
+ * Copyright (C) 2015-19, Tomas Pecina <tomas@pecina.cz>
+ *
+ * This file is part of cz.pecina.bin, a suite of binary-file
+ * processing applications.
+ *
+ * This application is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The source code is available from <https://github.com/tompecina/bitwriter>.
+ */
+
+package cz.pecina.bin.bitwriter;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * Index of variables bound to the streams, maintained per stream type.
+ * Variables report every change of their calculator, type or callback
+ * scripts, so that a write to a stream only has to visit the variables
+ * actually listening to it.  Listeners are kept in the order of their
+ * names, i.e., in the same order as in the variables map.
+ *
+ * @author Tomáš Pecina
+ * @version 1.0.5
+ * @see Variable
+ */
+public class TriggerRegistry {
+
+  // static logger
+  private static final Logger log = Logger.getLogger(TriggerRegistry.class.getName());
+
+  /**
+   * Variable bound to a stream.
+   */
+  public static class Listener {
+
+    // fields
+    protected final Variable variable;
+    protected final Calculator calculator;
+    protected final String expression;
+
+    /**
+     * Gets the variable.
+     *
+     * @return the variable
+     */
+    public Variable getVariable() {
+      return variable;
+    }
+
+    /**
+     * Gets the calculator to be updated on write's to the stream.
+     *
+     * @return the calculator or <code>null</code> if there is none
+     */
+    public Calculator getCalculator() {
+      return calculator;
+    }
+
+    /**
+     * Gets the (trimmed) expression to be evaluated on write's to
+     * the stream.
+     *
+     * @return the expression or <code>null</code> if there is none
+     */
+    public String getExpression() {
+      return expression;
+    }
+
+    /**
+     * Main constructor.
+     *
+     * @param variable   the variable
+     * @param calculator the calculator or <code>null</code>
+     * @param expression the expression or <code>null</code>
+     */
+    public Listener(final Variable variable, final Calculator calculator, final String expression) {
+      this.variable = variable;
+      this.calculator = calculator;
+      this.expression = expression;
+    }
+  }
+
+  // empty array of listeners
+  private static final Listener[] NO_LISTENERS = new Listener[0];
+
+  // fields
+  protected final Map<Variable.Type, Map<String, Listener>> index = new EnumMap<>(Variable.Type.class);
+  protected final Map<Variable.Type, Listener[]> listeners = new EnumMap<>(Variable.Type.class);
+  protected final Map<Variable.Type, Listener[]> noListeners = new EnumMap<>(Variable.Type.class);
+  protected Map<Variable.Type, Listener[]> activeListeners = listeners;
+  protected boolean expressions;
+
+  // recalculates the expressions flag
+  private void updateExpressions() {
+    expressions = false;
+    for (Listener[] array : listeners.values()) {
+      for (Listener listener : array) {
+        expressions |= (listener.expression != null);
+      }
+    }
+  }
+
+  /**
+   * Updates the registry after a change of a variable.
+   *
+   * @param variable the variable
+   */
+  public void update(final Variable variable) {
+    final String name = variable.getName();
+    log.finer("Updating trigger registry for: " + name);
+    final Calculator calculator = variable.getCalculator();
+    for (Variable.Type type : Variable.Type.values()) {
+      String expression = variable.getExpression(type);
+      if (expression != null) {
+        expression = expression.trim();
+        if (expression.isEmpty()) {
+          expression = null;
+        }
+      }
+      final Calculator boundCalculator = (variable.getType() == type) ? calculator : null;
+      final Map<String, Listener> map = index.get(type);
+      final Listener oldListener = map.get(name);
+      if ((boundCalculator == null) && (expression == null)) {
+        if (oldListener != null) {
+          map.remove(name);
+          listeners.put(type, map.values().toArray(NO_LISTENERS));
+          updateExpressions();
+        }
+      } else if ((oldListener == null) || (oldListener.variable != variable)
+          || (oldListener.calculator != boundCalculator) || !Objects.equals(expression, oldListener.expression)) {
+        map.put(name, new Listener(variable, boundCalculator, expression));
+        listeners.put(type, map.values().toArray(NO_LISTENERS));
+        updateExpressions();
+      }
+    }
+  }
+
+  /**
+   * Gets the listeners bound to a stream.
+   *
+   * @param  type type of the stream
+   * @return      array of listeners, in the order of variable names;
+   *              the array must not be modified
+   */
+  public Listener[] getListeners(final Variable.Type type) {
+    return activeListeners.get(type);
+  }
+
+  /**
+   * Checks whether any variable is bound to a stream.
+   *
+   * @param  type type of the stream
+   * @return      <code>true</code> if there is a calculator or
+   *              an expression bound to the stream
+   */
+  public boolean hasListeners(final Variable.Type type) {
+    return activeListeners.get(type).length > 0;
+  }
+
+  /**
+   * Suspends all listeners, until {@link #resume} is called.  This
+   * may be used when the effect of a write on the listeners is
+   * calculated by other means.
+   */
+  public void suspend() {
+    log.finer("Suspending listeners");
+    activeListeners = noListeners;
+  }
+
+  /**
+   * Resumes the listeners suspended by {@link #suspend}.
+   */
+  public void resume() {
+    log.finer("Resuming listeners");
+    activeListeners = listeners;
+  }
+
+  /**
+   * Checks whether an expression is bound to any of the streams.
+   *
+   * @return <code>true</code> if there is an expression bound to
+   *         at least one stream
+   */
+  public boolean hasExpressions() {
+    return expressions;
+  }
+
+  // for description see Object
+  @Override
+  public String toString() {
+    return "TriggerRegistry";
+  }
+
+  /**
+   * Main constructor.
+   */
+  public TriggerRegistry() {
+    log.fine("Trigger registry creation started");
+
+    for (Variable.Type type : Variable.Type.values()) {
+      index.put(type, new TreeMap<>());
+      listeners.put(type, NO_LISTENERS);
+      noListeners.put(type, NO_LISTENERS);
+    }
+
+    log.fine("Trigger registry set up");
+  }
+}
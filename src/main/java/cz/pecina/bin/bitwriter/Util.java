@@ -85,6 +85,33 @@ public final class Util {
     return BigInteger.ONE.shiftLeft(width).subtract(BigInteger.ONE);
   }
 
+  /**
+   * Creates a <code>long</code> mask.
+   *
+   * @param  width width of the mask, must not exceed 64 bits
+   * @return       the mask, or <code>0</code> if illegal width
+   */
+  public static long makeLongMask(final int width) {
+    if ((width < 1) || (width > Long.SIZE)) {
+      return 0L;
+    }
+    return (width == Long.SIZE) ? -1L : ((1L << width) - 1L);
+  }
+
+  /**
+   * Converts a <code>long</code>, interpreted as an unsigned
+   * 64-bit quantity, to <code>BigInteger</code>.
+   *
+   * @param  value value to be converted
+   * @return       the non-negative <code>BigInteger</code> value
+   */
+  public static BigInteger unsignedToBigInteger(final long value) {
+    if (value >= 0) {
+      return BigInteger.valueOf(value);
+    }
+    return BigInteger.valueOf(value >>> 1).shiftLeft(1).or(BigInteger.valueOf(value & 1L));
+  }
+
   /**
    * Reads a file into a byte array.
    *
@@ -47,6 +47,7 @@ public class Variable {
   // fields
   protected String name;
   protected BigInteger value;
+  protected boolean stale;
   protected Calculator calculator;
   protected String onStreamIn;
   protected String onAggregateStreamIn;
@@ -55,6 +56,7 @@ public class Variable {
   protected String onStreamOut;
   protected String onOutputStream;
   protected Type type;
+  protected TriggerRegistry registry;
 
   /**
    * Sets the {@link Calculator}.
@@ -64,7 +66,9 @@ public class Variable {
    */
   public void setCalculator(final Calculator calculator) {
     log.finer("Setting the calculator on '" + name + "'");
+    getValue();
     this.calculator = calculator;
+    updateRegistry();
   }
 
   /**
@@ -95,6 +99,7 @@ public class Variable {
   public void setType(final Type type) {
     log.finer("Setting variable '" + name + "' to type: " + type);
     this.type = type;
+    updateRegistry();
   }
 
   /**
@@ -115,6 +120,16 @@ public class Variable {
   public void setValue(final BigInteger value) {
     log.finer("Setting variable '" + name + "' to: " + Util.bigIntegerToString(value));
     this.value = value;
+    stale = false;
+  }
+
+  /**
+   * Marks the value of the variable as out of date.  The value will be
+   * taken from the register of the {@link Calculator} when it is next
+   * requested.
+   */
+  public void invalidate() {
+    stale = (calculator != null);
   }
 
   /**
@@ -123,6 +138,10 @@ public class Variable {
    * @return the value of the variable
    */
   public BigInteger getValue() {
+    if (stale) {
+      value = calculator.getRegister();
+      stale = false;
+    }
     log.finest("Getting value of variable '" + name + "': " + Util.bigIntegerToString(value));
     return value;
   }
@@ -136,6 +155,7 @@ public class Variable {
   public void setOnStreamIn(final String onStreamIn) {
     log.finer("Setting onStreamIn on '" + name + "' to: " + onStreamIn);
     this.onStreamIn = onStreamIn;
+    updateRegistry();
   }
 
   /**
@@ -158,6 +178,7 @@ public class Variable {
   public void setOnAggregateStreamIn(final String onAggregateStreamIn) {
     log.finer("Setting onAggregateStreamIn on '" + name + "' to: " + onAggregateStreamIn);
     this.onAggregateStreamIn = onAggregateStreamIn;
+    updateRegistry();
   }
 
   /**
@@ -181,6 +202,7 @@ public class Variable {
   public void setOnBitStream(final String onBitStream) {
     log.finer("Setting onBitStream on '" + name + "' to: " + onBitStream);
     this.onBitStream = onBitStream;
+    updateRegistry();
   }
 
   /**
@@ -203,6 +225,7 @@ public class Variable {
   public void setOnAggregateStreamOut(final String onAggregateStreamOut) {
     log.finer("Setting onAggregateStreamOut on '" + name + "' to: " + onAggregateStreamOut);
     this.onAggregateStreamOut = onAggregateStreamOut;
+    updateRegistry();
   }
 
   /**
@@ -226,6 +249,7 @@ public class Variable {
   public void setOnStreamOut(final String onStreamOut) {
     log.finer("Setting onStreamOut on '" + name + "' to: " + onStreamOut);
     this.onStreamOut = onStreamOut;
+    updateRegistry();
   }
 
   /**
@@ -248,6 +272,7 @@ public class Variable {
   public void setOnOutputStream(final String onOutputStream) {
     log.finer("Setting onOutputStream on '" + name + "' to: " + onOutputStream);
     this.onOutputStream = onOutputStream;
+    updateRegistry();
   }
 
   /**
@@ -262,6 +287,37 @@ public class Variable {
     return onOutputStream;
   }
 
+  /**
+   * Gets the callback script triggered by a write to a stream.
+   *
+   * @param  type type of the stream
+   * @return      the callback script triggered by a write to the stream
+   */
+  public String getExpression(final Type type) {
+    switch (type) {
+      case STREAM_IN:
+        return onStreamIn;
+      case AGGREGATE_STREAM_IN:
+        return onAggregateStreamIn;
+      case BITSTREAM:
+        return onBitStream;
+      case AGGREGATE_STREAM_OUT:
+        return onAggregateStreamOut;
+      case STREAM_OUT:
+        return onStreamOut;
+      case OUTPUT_STREAM:
+      default:
+        return onOutputStream;
+    }
+  }
+
+  // notifies the trigger registry of a change
+  private void updateRegistry() {
+    if (registry != null) {
+      registry.update(this);
+    }
+  }
+
   /**
    * Checks if the variable name is legal.
    *
@@ -287,12 +343,14 @@ public class Variable {
     log.finer("Variable '" + name + "' reset");
     calculator = null;
     value = BigInteger.ZERO;
+    stale = false;
     onStreamIn = null;
     onAggregateStreamIn = null;
     onBitStream = null;
     onAggregateStreamOut = null;
     onStreamOut = null;
     onOutputStream = null;
+    updateRegistry();
   }
 
   // for description see Object
@@ -305,15 +363,28 @@ public class Variable {
    * Main constructor.
    *
    * @param     name               the name of the variable
+   * @param     registry           the trigger registry to be notified
+   *                               of changes, or <code>null</code>
    * @exception ProcessorException on illegal variable name
    */
-  public Variable(final String name) throws ProcessorException {
+  public Variable(final String name, final TriggerRegistry registry) throws ProcessorException {
     log.fine("Variable creation started");
 
     checkVariableName(name);
     this.name = name;
+    this.registry = registry;
     reset();
 
     log.fine("Variable creation completed");
   }
+
+  /**
+   * Simplified constructor, without a trigger registry.
+   *
+   * @param     name               the name of the variable
+   * @exception ProcessorException on illegal variable name
+   */
+  public Variable(final String name) throws ProcessorException {
+    this(name, null);
+  }
 }
@@ -66,7 +66,7 @@ public abstract class VariableElement extends ParsedElement {
     final String name = getVariableName(element);
     Variable variable = processor.getVariables().get(name);
     if (variable == null) {
-      variable = new Variable(name);
+      variable = new Variable(name, processor.getTriggerRegistry());
       processor.getVariables().put(name, variable);
     }
     return variable;
@@ -147,6 +147,12 @@ public abstract class VariableElement extends ParsedElement {
         } else {
           return new PutElement(processor, element);
         }
+      case "crc-force":
+        if (outerLevel) {
+          throw new ProcessorException("<crc-force> element not allowed on the outer level");
+        } else {
+          return new CrcForceElement(processor, element);
+        }
       default:
         throw new ProcessorException("Error in input file, illegal element <" + element.getTagName() + ">");
     }
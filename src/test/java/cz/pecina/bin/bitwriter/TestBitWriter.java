@@ -6,6 +6,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import junit.framework.TestCase;
 
 public class TestBitWriter extends TestCase {
@@ -140,6 +141,63 @@ public class TestBitWriter extends TestCase {
     assertEquals("Error in process, bad CRC file (2)", 0, r.out.length);
     assertTrue("Error in process, bad CRC file (3)", (r.err.length() > 1));
 
+    r = test(new String[] {"-s", "<stream>0x55</stream>", "--verify-crc-models"}, null);
+    assertEquals("Error in process, verify CRC models (1)", 0, r.exitCode);
+    assertEquals("Error in process, verify CRC models (2)", 1, r.out.length);
+    assertEquals("Error in process, verify CRC models (3)", 0, r.err.length());
+
+    r = test(new String[] {"-s", "<stream>0x55</stream>", "-c", TEST_RESOURCES_PREFIX + "crc-check.xml"}, null);
+    assertEquals("Error in process, verify CRC models (4)", 0, r.exitCode);
+    assertEquals("Error in process, verify CRC models (5)", 1, r.out.length);
+    assertEquals("Error in process, verify CRC models (6)", 0, r.err.length());
+
+    r = test(new String[] {"-s", "<stream>0x55</stream>", "-c", TEST_RESOURCES_PREFIX + "crc-check.xml",
+        "--verify-crc-models"}, null);
+    assertEquals("Error in process, verify CRC models (7)", Constants.EXIT_CODE_ERROR_IN_PRESET_CRC_MODELS, r.exitCode);
+    assertEquals("Error in process, verify CRC models (8)", 0, r.out.length);
+    assertTrue("Error in process, verify CRC models (9)", (r.err.length() > 1));
+
+    r = test(new String[] {"-s", "<stream><crc name=\"c\" model=\"crc-8\"/>0x55</stream>", "-c",
+        TEST_RESOURCES_PREFIX + "crc-check.xml"}, null);
+    assertEquals("Error in process, verify CRC models (10)", Constants.EXIT_CODE_PROCESSING_ERROR, r.exitCode);
+    assertEquals("Error in process, verify CRC models (11)", 0, r.out.length);
+    assertTrue("Error in process, verify CRC models (12)", (r.err.length() > 1));
+
+    r = test(new String[] {"-s", "<stream><crc name=\"c\" model=\"crc-16/xmodem\"/>0x55<put name=\"c\"/></stream>", "-c",
+        TEST_RESOURCES_PREFIX + "crc-check.xml"}, null);
+    assertEquals("Error in process, verify CRC models (13)", 0, r.exitCode);
+    assertEquals("Error in process, verify CRC models (14)", 2, r.out.length);
+    assertEquals("Error in process, verify CRC models (15)", 0, r.err.length());
+
+    r = test(new String[] {"--find-crc", TEST_RESOURCES_PREFIX + "crc-samples-1.txt"}, null);
+    assertEquals("Error in process, find CRC (1)", 0, r.exitCode);
+    assertEquals("Error in process, find CRC (2)", 0, r.out.length);
+    assertEquals("Error in process, find CRC (3)",
+        String.format("Width: 16 Poly: 0x8bb7 RefIn: T XorIn: 0x1234 RefOut: F XorOut: 0x5678%n"), r.err);
+
+    r = test(new String[] {"--find-crc", TEST_RESOURCES_PREFIX + "crc-samples-3.txt"}, null);
+    assertEquals("Error in process, find CRC (4)", 0, r.exitCode);
+    assertEquals("Error in process, find CRC (5)", 0, r.out.length);
+    assertTrue("Error in process, find CRC (6)", r.err.startsWith(String.format(
+        "Preset model: Crc12-3Gpp1%nWidth: 12 Poly: 0x80f RefIn: F XorIn: 0x0 RefOut: T XorOut: 0x0%nNote: ")));
+
+    r = test(new String[] {"--find-crc", TEST_RESOURCES_PREFIX + "crc-samples-2.txt", "--find-crc-width", "8"},
+        null);
+    assertEquals("Error in process, find CRC (7)", 0, r.exitCode);
+    assertEquals("Error in process, find CRC (8)", 0, r.out.length);
+    assertEquals("Error in process, find CRC (9)", String.format("Preset model: Crc32%n"), r.err);
+
+    r = test(new String[] {"--find-crc", TEST_RESOURCES_PREFIX + "crc-samples-1.txt", "--find-crc-width", "64"},
+        null);
+    assertEquals("Error in process, find CRC (10)", Constants.EXIT_CODE_ERROR_IN_PARAMETERS, r.exitCode);
+    assertEquals("Error in process, find CRC (11)", 0, r.out.length);
+    assertTrue("Error in process, find CRC (12)", (r.err.length() > 1));
+
+    r = test(new String[] {"--find-crc", TEST_RESOURCES_PREFIX + "crc.xml"}, null);
+    assertEquals("Error in process, find CRC (13)", Constants.EXIT_CODE_PROCESSING_ERROR, r.exitCode);
+    assertEquals("Error in process, find CRC (14)", 0, r.out.length);
+    assertTrue("Error in process, find CRC (15)", (r.err.length() > 1));
+
     r = test(new String[] {"-c", "-s", "<stream>0x55</stream>"}, null);
     assertEquals("Error in process, missing CRC file parameter (1)", Constants.EXIT_CODE_ERROR_IN_PARAMETERS, r.exitCode);
     assertEquals("Error in process, missing CRC file parameter (2)", 0, r.out.length);
@@ -164,11 +222,108 @@ public class TestBitWriter extends TestCase {
         new String(r.out));
     assertEquals("Error in process, hex mode (12)", 0, r.err.length());
 
+    r = test(new String[] {"-s", "<stream>0 1 2 3 4 5 6 7 8 9 10 11 12 13 14 15 16</stream>", "-x", "-w", "8"}, null);
+    assertEquals("Error in process, hex mode (16)", 0, r.exitCode);
+    assertEquals("Error in process, hex mode (17)", String.format( "00 01 02 03 04 05 06 07%n08 09 0a 0b 0c 0d 0e 0f%n10%n"),
+        new String(r.out));
+    assertEquals("Error in process, hex mode (18)", 0, r.err.length());
+
+    r = test(new String[] {"-s", "<stream>0 1 2 3 4 5 6 7 8 9 10 11 12 13 14 15 16</stream>", "-x", "--hex-offsets",
+        "--hex-line-width", "10"}, null);
+    assertEquals("Error in process, hex mode (19)", 0, r.exitCode);
+    assertEquals("Error in process, hex mode (20)",
+        String.format( "00000000: 00 01 02 03 04 05 06 07 08 09%n0000000a: 0a 0b 0c 0d 0e 0f 10%n"), new String(r.out));
+    assertEquals("Error in process, hex mode (21)", 0, r.err.length());
+
+    r = test(new String[] {"-s", "<stream>0x55</stream>", "-x", "-w", "0"}, null);
+    assertEquals("Error in process, hex mode (22)", Constants.EXIT_CODE_ERROR_IN_PARAMETERS, r.exitCode);
+    assertEquals("Error in process, hex mode (23)", 0, r.out.length);
+    assertTrue("Error in process, hex mode (24)", (r.err.length() > 1));
+
+    r = test(new String[] {"-x", "-w", "1000000000", "-s", "<stream>1</stream>"}, null);
+    assertEquals("Error in process, hex mode (25)", Constants.EXIT_CODE_ERROR_IN_PARAMETERS, r.exitCode);
+    assertEquals("Error in process, hex mode (26)", 0, r.out.length);
+    assertTrue("Error in process, hex mode (27)", (r.err.length() > 1));
+
+    r = test(new String[] {"-x", "-w", "65536", "-s", "<stream>1</stream>"}, null);
+    assertEquals("Error in process, hex mode (28)", 0, r.exitCode);
+    assertEquals("Error in process, hex mode (29)", String.format("01%n"), new String(r.out));
+
     r = test(new String[] {"-s", "<stream></stream>", "-x"}, null);
     assertEquals("Error in process, hex mode (13)", 0, r.exitCode);
     assertEquals("Error in process, hex mode (14)", 0, r.out.length);
     assertEquals("Error in process, hex mode (15)", 0, r.err.length());
 
+    r = test(new String[] {"-s", "<stream>0 1 2 3 4 5 6 7 8 9 10 11 12 13 14 15 16</stream>", "-x", "-b", "5"}, null);
+    assertEquals("Error in process, buffer size (1)", 0, r.exitCode);
+    assertEquals("Error in process, buffer size (2)", String.format( "00 01 02 03 04 05 06 07 08 09 0a 0b 0c 0d 0e 0f%n10%n"),
+        new String(r.out));
+    assertEquals("Error in process, buffer size (3)", 0, r.err.length());
+
+    r = test(new String[] {"-s", "<stream>1 2 3</stream><stream>4<flush/>5</stream>", "--buffer-size", "2"}, null);
+    assertEquals("Error in process, buffer size (4)", 0, r.exitCode);
+    assertEquals("Error in process, buffer size (5)", 5, r.out.length);
+    assertEquals("Error in process, buffer size (6)", 3, (r.out[2] & 0xff));
+    assertEquals("Error in process, buffer size (7)", 5, (r.out[4] & 0xff));
+    assertEquals("Error in process, buffer size (8)", 0, r.err.length());
+
+    r = test(new String[] {"-s", "<stream>0x55</stream>", "-b", "0"}, null);
+    assertEquals("Error in process, buffer size (9)", Constants.EXIT_CODE_ERROR_IN_PARAMETERS, r.exitCode);
+    assertEquals("Error in process, buffer size (10)", 0, r.out.length);
+    assertTrue("Error in process, buffer size (11)", (r.err.length() > 1));
+
+    r = test(new String[] {"-s", "<stream>0x55</stream>", "-b", "many"}, null);
+    assertEquals("Error in process, buffer size (12)", Constants.EXIT_CODE_ERROR_IN_PARAMETERS, r.exitCode);
+    assertEquals("Error in process, buffer size (13)", 0, r.out.length);
+    assertTrue("Error in process, buffer size (14)", (r.err.length() > 1));
+
+    final String parallel = "<stream><crc name=\"a\" model=\"CRC-32\" type=\"output-stream\"/>"
+        + "<crc name=\"b\" model=\"CRC-16\"/><crc name=\"c\" model=\"CRC-82/DARC\"/>0x55"
+        + "<include location=\"src/test/resources/cz/pecina/bin/bitwriter/test1.txt\" offset=\"1\"/>"
+        + "<release name=\"a\"/><release name=\"b\"/><release name=\"c\"/></stream>"
+        + "<stream width-in=\"88\" width-aggregate-in=\"88\" width-aggregate-out=\"88\">"
+        + "<put name=\"a\"/><put name=\"b\"/><put name=\"c\"/></stream>";
+    r = test(new String[] {"-s", parallel, "-p", "0"}, null);
+    assertEquals("Error in process, parallel threshold (1)", 0, r.exitCode);
+    assertEquals("Error in process, parallel threshold (2)", 46, r.out.length);
+    final byte[] sequential = r.out;
+    r = test(new String[] {"-s", parallel, "--parallel-threshold", "1"}, null);
+    assertEquals("Error in process, parallel threshold (3)", 0, r.exitCode);
+    assertTrue("Error in process, parallel threshold (4)", Arrays.equals(sequential, r.out));
+    assertEquals("Error in process, parallel threshold (5)", 0, r.err.length());
+
+    final String chunked = "<stream><crc name=\"a\" model=\"CRC-32\" type=\"output-stream\"/>"
+        + "<crc name=\"b\" model=\"CRC-16\"/><crc name=\"c\" model=\"CRC-82/DARC\"/>0x55"
+        + "<include location=\"src/test/resources/cz/pecina/bin/bitwriter/crc.xml\" offset=\"1\"/>"
+        + "<release name=\"a\"/><release name=\"b\"/><release name=\"c\"/></stream>"
+        + "<stream width-in=\"88\" width-aggregate-in=\"88\" width-aggregate-out=\"88\">"
+        + "<put name=\"a\"/><put name=\"b\"/><put name=\"c\"/></stream>";
+    final long size = new File(TEST_RESOURCES_PREFIX + "crc.xml").length() - 1;
+    assertTrue("Error in process, parallel chunks (1)", (size % 3) != 0);
+    r = test(new String[] {"-s", chunked, "-p", "0"}, null);
+    assertEquals("Error in process, parallel chunks (2)", 0, r.exitCode);
+    assertEquals("Error in process, parallel chunks (3)", size + 34, r.out.length);
+    final byte[] sequentialChunked = r.out;
+    ParallelCrc.minChunkSize = size / 3;
+    try {
+      r = test(new String[] {"-s", chunked, "-p", "1"}, null);
+    } finally {
+      ParallelCrc.minChunkSize = ParallelCrc.DEFAULT_MIN_CHUNK_SIZE;
+    }
+    assertEquals("Error in process, parallel chunks (4)", 0, r.exitCode);
+    assertTrue("Error in process, parallel chunks (5)", Arrays.equals(sequentialChunked, r.out));
+    assertEquals("Error in process, parallel chunks (6)", 0, r.err.length());
+
+    r = test(new String[] {"-s", "<stream>0x55</stream>", "-p", "-1"}, null);
+    assertEquals("Error in process, parallel threshold (6)", Constants.EXIT_CODE_ERROR_IN_PARAMETERS, r.exitCode);
+    assertEquals("Error in process, parallel threshold (7)", 0, r.out.length);
+    assertTrue("Error in process, parallel threshold (8)", (r.err.length() > 1));
+
+    r = test(new String[] {"-s", "<stream>0x55</stream>", "-p", "many"}, null);
+    assertEquals("Error in process, parallel threshold (9)", Constants.EXIT_CODE_ERROR_IN_PARAMETERS, r.exitCode);
+    assertEquals("Error in process, parallel threshold (10)", 0, r.out.length);
+    assertTrue("Error in process, parallel threshold (11)", (r.err.length() > 1));
+
     r = test(new String[] {"-s", "<stream></stream>"}, null);
     assertEquals("Error in process, empty stream (1)", 0, r.exitCode);
     assertEquals("Error in process, empty stream (2)", 0, r.out.length);
@@ -241,5 +396,20 @@ public class TestBitWriter extends TestCase {
     } finally {
       f.delete();
     }
+    try {
+      r = test(new String[] {"-s", "<stream>0x55<include location=\"src/test/resources/cz/pecina/bin/bitwriter/test1.txt\""
+          + " offset=\"6\"/>0xaa</stream>", "-o", fn}, null);
+      f = new File(fn);
+      assertEquals("Error in process, output to file (20)", 0, r.exitCode);
+      assertEquals("Error in process, output to file (21)", 0, r.out.length);
+      assertTrue("Error in process, output to file (22)",
+                 Arrays.equals(new byte[] {0x55, 'w', 'o', 'r', 'l', 'd', '!', '\n', (byte) 0xaa},
+                               Util.fileToByteArray(fn)));
+      assertEquals("Error in process, output to file (23)", 0, r.err.length());
+    } catch (IOException exception) {
+      fail("Error in process, output to file (24)");
+    } finally {
+      f.delete();
+    }
   }
 }
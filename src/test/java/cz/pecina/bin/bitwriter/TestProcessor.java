@@ -1,6 +1,8 @@
 package cz.pecina.bin.bitwriter;
 
 import java.util.List;
+import java.util.Random;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.io.InputStream;
 import java.io.FileInputStream;
@@ -8,11 +10,15 @@ import java.io.StreamTokenizer;
 import java.io.Reader;
 import java.io.FileReader;
 import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.nio.file.Path;
 import java.nio.file.Files;
 import java.nio.file.DirectoryStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.zip.Adler32;
 import junit.framework.TestCase;
 
 public class TestProcessor extends TestCase {
@@ -108,6 +114,19 @@ public class TestProcessor extends TestCase {
     assertNotNull("models is null", presetCrcModels);
   }
 
+  public void testGeneratedModels() throws PresetCrcModelsException {
+    final ByteArrayOutputStream parsed = new ByteArrayOutputStream();
+    presetCrcModels.list(new PrintStream(parsed));
+    final ByteArrayOutputStream generated = new ByteArrayOutputStream();
+    final PresetCrcModels generatedModels = new PresetCrcModels();
+    generatedModels.list(new PrintStream(generated));
+    assertEquals("GeneratedModels failed (1)", parsed.toString(), generated.toString());
+    for (int i = 0; i < presetCrcModels.size(); i++) {
+      assertEquals("GeneratedModels failed (2)", presetCrcModels.get(i).hasCheck() ? presetCrcModels.get(i).getCheck()
+          : null, generatedModels.get(i).hasCheck() ? generatedModels.get(i).getCheck() : null);
+    }
+  }
+
   public void testAllModels() {
     for (CrcModel model: presetCrcModels) {
       if (!model.hasCheck()) {
@@ -118,4 +137,322 @@ public class TestProcessor extends TestCase {
       assertTrue("AllModels failed on model: " + model.getId(), c.getRegister().equals(model.getCheck()));
     }
   }
+
+  private void compareCrc(final CrcModel model, final Random random) {
+    final Crc c1 = new Crc(model);
+    final Crc c2 = Crc.create(model);
+    final String id = model.getPolynomial().getWidth() + "/" + model.getReflectIn() + "/" + model.getReflectOut();
+    for (int i = 0; i < 20; i++) {
+      switch (random.nextInt(4)) {
+        case 0:
+          final byte[] d = new byte[random.nextInt(50)];
+          random.nextBytes(d);
+          final int offset = random.nextInt(d.length + 1);
+          final int length = random.nextInt(d.length - offset + 1);
+          if (random.nextBoolean()) {
+            c1.update(d);
+            c2.update(d);
+          } else {
+            for (int j = offset; j < (offset + length); j++) {
+              c1.update(d[j]);
+            }
+            c2.update(d, offset, length);
+          }
+          break;
+        case 1:
+          final int b = random.nextInt(0x100);
+          c1.update(b);
+          c2.update(b);
+          break;
+        case 2:
+          for (int j = random.nextInt(20); j >= 0; j--) {
+            final int bit = random.nextInt(2);
+            c1.updateBit(bit);
+            c2.updateBit(bit);
+          }
+          break;
+        default:
+          final BigInteger r = random.nextBoolean() ? BigInteger.ZERO
+              : new BigInteger(model.getPolynomial().getWidth() + 4, random);
+          c1.setRegister(r);
+          c2.setRegister(r);
+          break;
+      }
+      assertEquals("LongCrc failed on model: " + id, c1.getRegister(), c2.getRegister());
+    }
+  }
+
+  public void testIntrinsicCrc() {
+    assertTrue("IntrinsicCrc not used for CRC-32",
+               Crc.create(presetCrcModels.getExtended("CRC-32")) instanceof IntrinsicCrc);
+    assertFalse("IntrinsicCrc used for CRC-32/BZIP2",
+                Crc.create(presetCrcModels.getExtended("CRC-32/BZIP2")) instanceof IntrinsicCrc);
+    final Random random = new Random(2);
+    for (int i = 0; i < 50; i++) {
+      compareCrc(presetCrcModels.getExtended("CRC-32"), random);
+      compareCrc(presetCrcModels.getExtended("CRC-32C"), random);
+    }
+  }
+
+  private void checkCombine(final CrcModel model, final Random random) {
+    final byte[] d = new byte[random.nextInt(10000)];
+    random.nextBytes(d);
+    final int lengthA = random.nextInt(d.length + 1);
+    final Crc c = Crc.create(model);
+    c.update(d);
+    final Crc a = Crc.create(model);
+    a.update(d, 0, lengthA);
+    final Crc b = new Crc(model);
+    b.update(d, lengthA, d.length - lengthA);
+    final String id = model.getPolynomial().getWidth() + "/" + model.getReflectIn() + "/" + model.getReflectOut();
+    assertEquals("Combine failed on model: " + id, c.getRegister(),
+                 a.combine(a.getRegister(), b.getRegister(), d.length - lengthA));
+    a.append(b.getRegister(), d.length - lengthA);
+    assertEquals("Append failed on model: " + id, c.getRegister(), a.getRegister());
+    a.updateBit(1);
+    a.update(d);
+    c.updateBit(1);
+    c.update(d);
+    assertEquals("Update after append failed on model: " + id, c.getRegister(), a.getRegister());
+  }
+
+  public void testCrcCombine() throws PolynomialException, ProcessorException {
+    final Random random = new Random(3);
+    for (CrcModel model: presetCrcModels) {
+      checkCombine(model, random);
+    }
+    for (int width = 1; width <= 72; width++) {
+      final Polynomial polynomial = new Polynomial(
+          new BigInteger(width, random).setBit(0), Polynomial.Notation.NORMAL, width);
+      checkCombine(new CrcModel(polynomial, random.nextBoolean(), new BigInteger(width, random),
+                                random.nextBoolean(), new BigInteger(width, random)), random);
+    }
+  }
+
+  public void testCrcTables() throws ProcessorException {
+    final CrcModel model = presetCrcModels.getExtended("CRC-16/CCITT");
+    final CrcModel other = new CrcModel(model.getPolynomial(), !model.getReflectIn(), BigInteger.ZERO,
+                                        model.getReflectOut(), BigInteger.ONE);
+    final CrcModel same = new CrcModel(model.getPolynomial(), model.getReflectIn(), BigInteger.ZERO,
+                                       !model.getReflectOut(), BigInteger.ONE);
+    assertSame("Table not shared", new Crc(model).table, new Crc(same).table);
+    assertNotSame("Table shared", new Crc(model).table, new Crc(other).table);
+    assertSame("Long tables not shared", new LongCrc(model).longTables, new LongCrc(same).longTables);
+    assertNotSame("Long tables shared", new LongCrc(model).longTables, new LongCrc(other).longTables);
+  }
+
+  public void testLongCrc() throws PolynomialException, ProcessorException {
+    final Random random = new Random(1);
+    for (CrcModel model: presetCrcModels) {
+      compareCrc(model, random);
+    }
+    for (int width = 1; width <= 72; width++) {
+      for (int i = 0; i < 8; i++) {
+        final Polynomial polynomial = new Polynomial(
+            new BigInteger(width, random).setBit(0), Polynomial.Notation.NORMAL, width);
+        compareCrc(new CrcModel(polynomial, random.nextBoolean(), new BigInteger(width + 4, random).negate(),
+                                random.nextBoolean(), new BigInteger(width, random)), random);
+      }
+    }
+  }
+
+  public void testCrcForce() throws PolynomialException, ProcessorException {
+    final Random random = new Random(9);
+    for (int width : new int[] {3, 8, 16, 32, 33, 64, 82}) {
+      for (int i = 0; i < 4; i++) {
+        final Polynomial polynomial = new Polynomial(
+            new BigInteger(width, random).setBit(0), Polynomial.Notation.NORMAL, width);
+        final CrcModel model = new CrcModel(polynomial, random.nextBoolean(), new BigInteger(width, random),
+                                            random.nextBoolean(), new BigInteger(width, random));
+        for (Crc crc : new Crc[] {new Crc(model), Crc.create(model)}) {
+          final String id = width + "/" + model.getReflectIn() + "/" + model.getReflectOut() + "/" + crc;
+          final byte[] prefix = new byte[random.nextInt(20)];
+          random.nextBytes(prefix);
+          crc.update(prefix);
+          final BigInteger register = crc.getRegister();
+          for (int length : new int[] {(width + 7) / 8, ((width + 7) / 8) + 3, 0x1000}) {
+            final BigInteger value = new BigInteger(width, random);
+            final byte[] d = crc.force(value, length);
+            assertNotNull("CRC force failed on: " + id, d);
+            assertEquals("CRC force changed the register on: " + id, register, crc.getRegister());
+            crc.update(d);
+            assertEquals("CRC force failed on: " + id, value, crc.getRegister());
+            crc.setRegister(BigInteger.ZERO);
+            crc.update(prefix);
+          }
+        }
+      }
+    }
+  }
+
+  public void testCrcFinderLinear() throws PolynomialException, ProcessorException {
+    final Random random = new Random(8);
+    for (int width : new int[] {3, 5, 7, 8, 16, 32, 33, 40, 63}) {
+      for (int i = 0; i < 8; i++) {
+        final long p = new BigInteger(width, random).setBit(0).longValue();
+        for (boolean reflectIn : new boolean[] {false, true}) {
+          final Crc crc = new Crc(new CrcModel(new Polynomial(Util.unsignedToBigInteger(p),
+              Polynomial.Notation.NORMAL, width), reflectIn, BigInteger.ZERO, false, BigInteger.ZERO));
+          final long[] table = CrcTables.buildLongTable(p, width, reflectIn);
+          final String id = width + "/" + reflectIn;
+          for (int length : new int[] {0, 1, 2, 7, 100, 300}) {
+            final byte[] d = new byte[length];
+            random.nextBytes(d);
+            crc.setRegister(BigInteger.ZERO);
+            crc.update(d);
+            final long expected = crc.getRegister().longValue();
+            assertEquals("Bitwise CrcFinder.linear failed on: " + id, expected,
+                         CrcFinder.linear(p, width, reflectIn, d));
+            assertEquals("Table CrcFinder.linear failed on: " + id, expected,
+                         CrcFinder.linear(table, width, reflectIn, d));
+          }
+        }
+      }
+    }
+  }
+
+  private void compareCheckSum(final CheckSumModel model, final Random random) {
+    final CheckSum c1 = new CheckSum(model);
+    final CheckSum c2 = CheckSum.create(model);
+    final String id = model.getWidth() + "/" + model.getAlgorithm();
+    for (int i = 0; i < 20; i++) {
+      switch (random.nextInt(4)) {
+        case 0:
+          final byte[] d = new byte[random.nextInt(50)];
+          random.nextBytes(d);
+          final int offset = random.nextInt(d.length + 1);
+          final int length = random.nextInt(d.length - offset + 1);
+          if (random.nextBoolean()) {
+            c1.update(d);
+            c2.update(d);
+          } else {
+            for (int j = offset; j < (offset + length); j++) {
+              c1.update(d[j] & 0xff);
+            }
+            c2.update(d, offset, length);
+          }
+          break;
+        case 1:
+          final BigInteger b = random.nextBoolean() ? new BigInteger(model.getWidth() + 4, random)
+              : new BigInteger(model.getWidth() + 4, random).negate();
+          c1.update(b);
+          c2.update(b);
+          break;
+        case 2:
+          for (int j = random.nextInt(20); j >= 0; j--) {
+            final int bit = random.nextInt(2);
+            c1.updateBit(bit);
+            c2.updateBit(bit);
+          }
+          break;
+        default:
+          final BigInteger r = new BigInteger(model.getWidth(), random);
+          c1.setRegister(r);
+          c2.setRegister(r);
+          break;
+      }
+      assertEquals("LongCheckSum failed on model: " + id, c1.getRegister(), c2.getRegister());
+    }
+  }
+
+  public void testLongCheckSum() throws ProcessorException {
+    final Random random = new Random(4);
+    for (int width = 1; width <= 70; width++) {
+      for (CheckSumModel.Algorithm algorithm:
+             new CheckSumModel.Algorithm[] {CheckSumModel.Algorithm.MODULAR, CheckSumModel.Algorithm.ONES_COMPLEMENT}) {
+        final CheckSumModel model = new CheckSumModel(algorithm, width, new BigInteger(width + 4, random),
+                                                      new BigInteger(width, random));
+        assertEquals("Wrong checksum calculator for model: " + width + "/" + algorithm,
+                     width <= ((algorithm == CheckSumModel.Algorithm.MODULAR) ? 64 : 62),
+                     CheckSum.create(model) instanceof LongCheckSum);
+        for (int i = 0; i < 8; i++) {
+          compareCheckSum(model, random);
+        }
+      }
+    }
+  }
+
+  public void testCheckSumBlocks() throws ProcessorException {
+    final Random random = new Random(5);
+    final byte[] d = new byte[20000];
+    random.nextBytes(d);
+    for (CheckSumModel.Algorithm algorithm: CheckSumModel.Algorithm.values()) {
+      final int width = (algorithm == CheckSumModel.Algorithm.FLETCHER) ? (2 * (random.nextInt(32) + 1))
+          : CheckSumModel.getDefaultWidth(algorithm);
+      final CheckSumModel model = new CheckSumModel(algorithm, width, new BigInteger(width, random),
+                                                    new BigInteger(width, random));
+      final CheckSum c1 = CheckSum.create(model);
+      final CheckSum c2 = CheckSum.create(model);
+      for (int i = 0; i < 10; i++) {
+        final int offset = random.nextInt(d.length + 1);
+        final int length = random.nextInt(d.length - offset + 1);
+        for (int j = offset; j < (offset + length); j++) {
+          c1.update(BigInteger.valueOf(d[j] & 0xff));
+        }
+        c2.update(d, offset, length);
+        assertEquals("Block update failed on model: " + width + "/" + algorithm, c1.getRegister(), c2.getRegister());
+        final BigInteger r = new BigInteger(width, random);
+        c1.setRegister(r);
+        c2.setRegister(r);
+      }
+    }
+    final CheckSum adler = CheckSum.create(new CheckSumModel(CheckSumModel.Algorithm.ADLER, 32, BigInteger.ONE,
+                                                             BigInteger.ZERO));
+    final Adler32 reference = new Adler32();
+    adler.update(d);
+    reference.update(d);
+    assertEquals("Adler-32 failed", BigInteger.valueOf(reference.getValue()), adler.getRegister());
+  }
+
+  public void testParity() {
+    final Random random = new Random(6);
+    for (Parity.ParityModel model: Parity.ParityModel.values()) {
+      final Parity p1 = new Parity(model);
+      final Parity p2 = new Parity(model);
+      boolean odd = false;
+      for (int i = 0; i < 1000; i++) {
+        final BigInteger b = new BigInteger(random.nextInt(200), random);
+        final BigInteger value = random.nextBoolean() ? b : b.negate();
+        for (int j = value.bitLength() - 1; j >= 0; j--) {
+          odd ^= value.testBit(j);
+        }
+        p1.update(value);
+        final byte[] d = new byte[random.nextInt(20)];
+        random.nextBytes(d);
+        for (byte v : d) {
+          odd ^= (Integer.bitCount(v & 0xff) % 2) == 1;
+          p2.update(v);
+        }
+        p1.update(d);
+        p2.update(value);
+        assertEquals("Parity failed", (odd == (model == Parity.ParityModel.ODD)) ? BigInteger.ZERO : BigInteger.ONE,
+                     p1.getRegister());
+        assertEquals("Parity failed", p1.getRegister(), p2.getRegister());
+      }
+    }
+  }
+
+  public void testDigest() throws Exception {
+    final Random random = new Random(7);
+    final byte[] d = new byte[10000];
+    random.nextBytes(d);
+    final MessageDigest reference = MessageDigest.getInstance("SHA-256");
+    final Digest digest = new Digest("SHA-256");
+    assertEquals("Digest failed", new BigInteger(1, reference.digest()), digest.getRegister());
+    final ByteBuffer direct = ByteBuffer.allocateDirect(1000);
+    direct.put(d, 0, 1000).flip();
+    digest.update(direct);
+    assertFalse("Buffer not consumed", direct.hasRemaining());
+    digest.update(ByteBuffer.wrap(d, 1000, 1000));
+    digest.update(d, 2000, 3000);
+    for (int i = 5000; i < d.length; i++) {
+      digest.update(BigInteger.valueOf(d[i] & 0xff));
+    }
+    reference.update(d);
+    final BigInteger r = digest.getRegister();
+    assertEquals("Digest failed", new BigInteger(1, reference.digest()), r);
+    assertSame("Register not cached", r, digest.getRegister());
+    digest.update(0);
+    assertFalse("Cached register not invalidated", r.equals(digest.getRegister()));
+  }
 }
@@ -1,6 +1,7 @@
 package cz.pecina.bin.bitwriter;
 
 import java.math.BigInteger;
+import java.security.MessageDigest;
 import junit.framework.TestCase;
 
 public class TestScriptProcessor extends TestCase {
@@ -131,6 +132,37 @@ public class TestScriptProcessor extends TestCase {
          "' did not throw exception, but returned: " + result);
   }
 
+  public void testLazyVariables() throws Exception {
+    final int[] finalizations = new int[1];
+    inputTreeProcessor.scriptProcessor = scriptProcessor;
+    final TriggerRegistry registry = inputTreeProcessor.getTriggerRegistry();
+    final Variable d = new Variable("d", registry);
+    d.setType(Variable.Type.STREAM_OUT);
+    d.setCalculator(new Digest("SHA-256") {
+        @Override
+        public BigInteger getRegister() {
+          if (cachedRegister == null) {
+            finalizations[0]++;
+          }
+          return super.getRegister();
+        }
+      });
+    inputTreeProcessor.getVariables().put("d", d);
+    final Variable s = new Variable("s", registry);
+    s.setOnStreamOut("{{s.add(val)}}");
+    inputTreeProcessor.getVariables().put("s", s);
+    final byte[] data = new byte[100];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+      inputTreeProcessor.trigger(Variable.Type.STREAM_OUT, BigInteger.valueOf(i));
+    }
+    assertEquals("Digest finalized by unrelated script", 0, finalizations[0]);
+    assertEquals("Error in script", BigInteger.valueOf(4950), s.getValue());
+    assertEquals("Error in digest", new BigInteger(1, MessageDigest.getInstance("SHA-256").digest(data)),
+                 scriptProcessor.eval("d"));
+    assertEquals("Digest not finalized exactly once", 1, finalizations[0]);
+  }
+
   public void testEval() {
     Object result = null;
     String expression = null;
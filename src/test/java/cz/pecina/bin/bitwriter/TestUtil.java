@@ -99,6 +99,70 @@ public class TestUtil extends TestCase {
 	       Util.makeMask(width));
   }
 
+  public void testMakeLongMask() {
+    int width;
+    long output;
+
+    output = 1L;
+    width = 1;
+    assertEquals("Error in makeLongMask(), width: " + width,
+		 output,
+		 Util.makeLongMask(width));
+
+    output = 0xffL;
+    width = 8;
+    assertEquals("Error in makeLongMask(), width: " + width,
+		 output,
+		 Util.makeLongMask(width));
+
+    output = -1L;
+    width = 64;
+    assertEquals("Error in makeLongMask(), width: " + width,
+		 output,
+		 Util.makeLongMask(width));
+
+    output = 0L;
+    width = 0;
+    assertEquals("Error in makeLongMask(), width: " + width,
+		 output,
+		 Util.makeLongMask(width));
+
+    output = 0L;
+    width = 65;
+    assertEquals("Error in makeLongMask(), width: " + width,
+		 output,
+		 Util.makeLongMask(width));
+  }
+
+  public void testUnsignedToBigInteger() {
+    long input;
+    BigInteger output;
+
+    input = 0L;
+    output = BigInteger.ZERO;
+    assertEquals("Error in unsignedToBigInteger(), value: " + input,
+		 output,
+		 Util.unsignedToBigInteger(input));
+
+    input = Long.MAX_VALUE;
+    output = BigInteger.valueOf(Long.MAX_VALUE);
+    assertEquals("Error in unsignedToBigInteger(), value: " + input,
+		 output,
+		 Util.unsignedToBigInteger(input));
+
+    input = Long.MIN_VALUE;
+    output = BigInteger.ONE.shiftLeft(63);
+    assertEquals("Error in unsignedToBigInteger(), value: " + input,
+		 output,
+		 Util.unsignedToBigInteger(input));
+
+    input = -1L;
+    output = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+    assertEquals("Error in unsignedToBigInteger(), value: " + input,
+		 output,
+		 Util.unsignedToBigInteger(input));
+  }
+
   public void testStreamToString() {
     InputStream is = new ByteArrayInputStream("test".getBytes());
     try {